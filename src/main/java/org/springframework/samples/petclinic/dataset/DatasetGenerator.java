@@ -0,0 +1,452 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.dataset;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.model.BaseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Adds a synthetic, reproducible data set of vets, owners, pets and visits to the existing data,
+ * for load tests and benchmarks that need more than the ten owners of <code>data.sql</code>.
+ * Everything is drawn from one random generator seeded with {@link DatasetProperties#getSeed()},
+ * so the same settings on the same starting data always give the same rows.
+ * <p>
+ * The data is skewed the way a real clinic's is: last names, first names, cities and pet names
+ * follow Zipf distributions over fixed vocabularies (at a million owners about 49,000, some 5%,
+ * share the most common of the 1,252 last names and about 230 the rarest one), the number of pets
+ * per owner is Poisson distributed and the number of visits per pet is Pareto distributed, so
+ * that a small share of the pets gets most of the visits. Pet types are weighted towards cats and
+ * dogs. Visit dates lie between the pet's birth and {@link #LAST_VISIT}, a fixed date so that the
+ * output does not depend on the clock.
+ * <p>
+ * The rows are written with plain JDBC batches, each owner chunk with its pets and visits in one
+ * transaction, using ids above the largest existing ones. Afterwards
+ * <code>hibernate_sequence</code> is moved past the new ids. The database should not be in use
+ * by the application while the data is generated.
+ */
+@Component
+public class DatasetGenerator {
+
+    static final LocalDate LAST_VISIT = LocalDate.of(2018, 1, 1);
+
+    private static final Logger logger = LoggerFactory.getLogger(DatasetGenerator.class);
+
+    private static final int MAX_PETS_PER_OWNER = 12;
+
+    private static final int PROGRESS_OWNERS = 100000;
+
+    /**
+     * Shape of the visits per pet distribution: 1.5 gives the busiest fifth of the pets more
+     * than half of the visits.
+     */
+    private static final double VISITS_ALPHA = 1.5;
+
+    private static final List<String> COMMON_LAST_NAMES = Arrays.asList("Smith", "Johnson", "Williams", "Brown",
+        "Jones", "Garcia", "Miller", "Davis", "Rodriguez", "Martinez", "Hernandez", "Lopez", "Gonzalez", "Wilson",
+        "Anderson", "Thomas", "Taylor", "Moore", "Jackson", "Martin", "Lee", "Perez", "Thompson", "White", "Harris",
+        "Sanchez", "Clark", "Ramirez", "Lewis", "Robinson", "Walker", "Young", "Allen", "King", "Wright", "Scott",
+        "Torres", "Nguyen", "Hill", "Flores", "Green", "Adams", "Nelson", "Baker", "Hall", "Rivera", "Campbell",
+        "Mitchell", "Carter", "Roberts", "Gomez", "Phillips", "Evans", "Turner", "Diaz", "Parker", "Cruz", "Edwards",
+        "Collins", "Reyes", "Stewart", "Morris", "Morales", "Murphy", "Cook", "Rogers", "Gutierrez", "Ortiz",
+        "Morgan", "Cooper", "Peterson", "Bailey", "Reed", "Kelly", "Howard", "Ramos", "Kim", "Cox", "Ward",
+        "Richardson", "Watson", "Brooks", "Chavez", "Wood", "James", "Bennett", "Gray", "Mendoza", "Ruiz", "Hughes",
+        "Price", "Alvarez", "Castillo", "Sanders", "Patel", "Myers", "Long", "Ross", "Foster", "Jimenez");
+
+    private static final List<String> NAME_STEMS = Arrays.asList("Ash", "Bar", "Bel", "Black", "Brad", "Bram", "Brook",
+        "Cal", "Carl", "Chan", "Cole", "Dal", "Dun", "East", "Ell", "Fair", "Fen", "Ford", "Gar", "Glen", "Hal",
+        "Hart", "Haw", "Hol", "Kent", "Lang", "Lind", "Marsh", "Mer", "Mont", "Nor", "Oak", "Pem", "Ral", "Red",
+        "Rod", "Sel", "Shel", "Stan", "Stock", "Sum", "Tal", "Thorn", "Wal", "West", "Whit", "Win", "Wood");
+
+    private static final List<String> NAME_ENDINGS = Arrays.asList("by", "croft", "dale", "den", "field", "ford",
+        "gate", "ham", "hurst", "ington", "land", "ley", "low", "man", "mere", "more", "ridge", "stead", "stone",
+        "ton", "wick", "well", "win", "worth");
+
+    private static final List<String> FIRST_NAMES = Arrays.asList("James", "Mary", "John", "Patricia", "Robert",
+        "Jennifer", "Michael", "Linda", "William", "Elizabeth", "David", "Barbara", "Richard", "Susan", "Joseph",
+        "Jessica", "Thomas", "Sarah", "Charles", "Karen", "Daniel", "Nancy", "Matthew", "Lisa", "Anthony", "Betty",
+        "Mark", "Margaret", "Paul", "Sandra", "Steven", "Ashley", "Andrew", "Emily", "Kenneth", "Donna", "Joshua",
+        "Michelle", "Kevin", "Carol", "Brian", "Amanda", "George", "Melissa", "Edward", "Deborah", "Ronald",
+        "Stephanie", "Timothy", "Rebecca", "Jason", "Laura", "Jeffrey", "Sharon", "Ryan", "Cynthia", "Jacob",
+        "Kathleen", "Gary", "Amy");
+
+    private static final List<String> CITIES = Arrays.asList("Madison", "Milwaukee", "Green Bay", "Kenosha", "Racine",
+        "Appleton", "Waukesha", "Eau Claire", "Oshkosh", "Janesville", "West Allis", "La Crosse", "Sheboygan",
+        "Wauwatosa", "Fond du Lac", "New Berlin", "Wausau", "Brookfield", "Beloit", "Greenfield", "Franklin",
+        "Oak Creek", "Manitowoc", "West Bend", "Sun Prairie", "Superior", "Stevens Point", "Neenah", "Fitchburg",
+        "Muskego", "Watertown", "De Pere", "Mequon", "South Milwaukee", "Marshfield", "Wisconsin Rapids",
+        "Cudahy", "Onalaska", "Middleton", "Menasha");
+
+    private static final List<String> STREETS = Arrays.asList("Main", "Oak", "Pine", "Maple", "Cedar", "Elm", "Lake",
+        "Hill", "Washington", "Park", "Walnut", "Sunset", "Lincoln", "Jackson", "Church", "River", "Highland",
+        "Center", "Mill", "Spring", "Forest", "Meadow", "Liberty", "Willow", "Prairie", "Ridge", "Madison", "State");
+
+    private static final List<String> STREET_TYPES = Arrays.asList("St.", "Ave.", "Rd.", "Ln.", "Dr.", "Ct.", "Blvd.");
+
+    private static final List<String> PET_NAMES = Arrays.asList("Bella", "Max", "Luna", "Charlie", "Lucy", "Cooper",
+        "Daisy", "Milo", "Bailey", "Buddy", "Lily", "Rocky", "Molly", "Bear", "Sadie", "Tucker", "Lola", "Duke",
+        "Zoe", "Oliver", "Chloe", "Leo", "Sophie", "Jack", "Stella", "Toby", "Penny", "Zeus", "Coco", "Bentley",
+        "Rosie", "Teddy", "Ruby", "Winston", "Gracie", "Oscar", "Nala", "Simba", "Pepper", "Jasper", "Ginger",
+        "Loki", "Maggie", "Murphy", "Willow", "Finn", "Rex", "Felix", "Tiger", "Smokey", "Shadow", "Misty", "Kiwi",
+        "Nibbles", "Peanut", "Biscuit", "Pickles", "Mochi", "Ziggy", "Olive");
+
+    private static final List<String> VISIT_REASONS = Arrays.asList("annual checkup", "vaccination", "rabies shot",
+        "dental cleaning", "skin allergy", "ear infection", "limping", "vomiting", "weight check", "nail trim",
+        "spayed", "neutered", "x-ray", "stitches removed", "follow-up");
+
+    private static final Map<String, Double> TYPE_WEIGHTS = new HashMap<>();
+
+    static {
+        TYPE_WEIGHTS.put("dog", 35.0);
+        TYPE_WEIGHTS.put("cat", 30.0);
+        TYPE_WEIGHTS.put("bird", 10.0);
+        TYPE_WEIGHTS.put("hamster", 10.0);
+        TYPE_WEIGHTS.put("lizard", 5.0);
+        TYPE_WEIGHTS.put("snake", 4.0);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactions;
+
+    @Autowired
+    public DatasetGenerator(DataSource dataSource, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactions = new TransactionTemplate(transactionManager);
+    }
+
+    public Summary generate(DatasetProperties properties) {
+        long start = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(properties.getSeed());
+        Vocabulary words = new Vocabulary(this.jdbcTemplate);
+        Summary summary = new Summary();
+        Ids ids = new Ids(this.jdbcTemplate);
+
+        generateVets(properties, random, words, ids, summary);
+
+        List<Object[]> owners = new ArrayList<>(properties.getBatchSize());
+        List<Object[]> pets = new ArrayList<>();
+        List<Object[]> visits = new ArrayList<>();
+        for (int i = 0; i < properties.getOwners(); i++) {
+            int ownerId = ids.nextOwner++;
+            owners.add(new Object[] { ownerId, words.firstNames.next(random), words.lastNames.next(random),
+                (1 + random.nextInt(9999)) + " " + words.streets.next(random) + " "
+                    + STREET_TYPES.get(random.nextInt(STREET_TYPES.size())),
+                words.cities.next(random), telephone(random) });
+            int petCount = Math.min(poisson(random, properties.getPetsPerOwner()), MAX_PETS_PER_OWNER);
+            for (int p = 0; p < petCount; p++) {
+                int petId = ids.nextPet++;
+                LocalDate birthDate = LAST_VISIT.minusDays(30 + random.nextInt(15 * 365));
+                pets.add(new Object[] { petId, words.petNames.next(random), Date.valueOf(birthDate),
+                    words.types.next(random), ownerId });
+                int visitCount = visits(random, properties.getVisitsPerPet());
+                long days = LAST_VISIT.toEpochDay() - birthDate.toEpochDay();
+                for (int v = 0; v < visitCount; v++) {
+                    visits.add(new Object[] { ids.nextVisit++, petId,
+                        Date.valueOf(birthDate.plusDays(1 + random.nextLong(days))), words.reasons.next(random) });
+                }
+            }
+            if (owners.size() == properties.getBatchSize()) {
+                write(owners, pets, visits, summary);
+            }
+        }
+        write(owners, pets, visits, summary);
+
+        advanceSequence(ids.max());
+        summary.elapsedNanos = System.nanoTime() - start;
+        return summary;
+    }
+
+    private void generateVets(DatasetProperties properties, SplittableRandom random, Vocabulary words, Ids ids,
+                              Summary summary) {
+        List<Object[]> vets = new ArrayList<>(properties.getVets());
+        List<Object[]> specialties = new ArrayList<>();
+        for (int i = 0; i < properties.getVets(); i++) {
+            int vetId = ids.nextVet++;
+            vets.add(new Object[] { vetId, words.firstNames.next(random), words.lastNames.next(random) });
+            // 40% of the vets have no specialty, most of the others one
+            double draw = random.nextDouble();
+            int count = draw < 0.4 ? 0 : draw < 0.85 ? 1 : 2;
+            int first = -1;
+            for (int s = 0; s < Math.min(count, words.specialties.size()); s++) {
+                int index;
+                do {
+                    index = random.nextInt(words.specialties.size());
+                } while (index == first);
+                first = index;
+                specialties.add(new Object[] { vetId, words.specialties.get(index) });
+            }
+        }
+        this.transactions.execute(status -> {
+            this.jdbcTemplate.batchUpdate("INSERT INTO vets (id, first_name, last_name) VALUES (?, ?, ?)", vets);
+            this.jdbcTemplate.batchUpdate("INSERT INTO vet_specialties (vet_id, specialty_id) VALUES (?, ?)", specialties);
+            return null;
+        });
+        summary.vets += vets.size();
+    }
+
+    private void write(List<Object[]> owners, List<Object[]> pets, List<Object[]> visits, Summary summary) {
+        if (owners.isEmpty()) {
+            return;
+        }
+        this.transactions.execute(status -> {
+            this.jdbcTemplate.batchUpdate(
+                "INSERT INTO owners (id, first_name, last_name, address, city, telephone) VALUES (?, ?, ?, ?, ?, ?)",
+                owners);
+            this.jdbcTemplate.batchUpdate(
+                "INSERT INTO pets (id, name, birth_date, type_id, owner_id) VALUES (?, ?, ?, ?, ?)", pets);
+            this.jdbcTemplate.batchUpdate(
+                "INSERT INTO visits (id, pet_id, visit_date, description) VALUES (?, ?, ?, ?)", visits);
+            return null;
+        });
+        long before = summary.owners;
+        summary.owners += owners.size();
+        summary.pets += pets.size();
+        summary.visits += visits.size();
+        owners.clear();
+        pets.clear();
+        visits.clear();
+        if (before / PROGRESS_OWNERS != summary.owners / PROGRESS_OWNERS) {
+            logger.info("Generated {} so far", summary);
+        }
+    }
+
+    /**
+     * Let Hibernate hand out ids above the generated ones, see {@link BaseEntity}.
+     */
+    private void advanceSequence(int maxId) {
+        int next = maxId + BaseEntity.ID_ALLOCATION_SIZE;
+        String product = this.jdbcTemplate.execute(
+            (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (product.startsWith("HSQL")) {
+            Integer current = this.jdbcTemplate.queryForObject("SELECT CAST(next_value AS INTEGER) "
+                + "FROM information_schema.sequences WHERE sequence_name = 'HIBERNATE_SEQUENCE'", Integer.class);
+            if (current < next) {
+                this.jdbcTemplate.execute("ALTER SEQUENCE hibernate_sequence RESTART WITH " + next);
+            }
+        } else if (product.startsWith("MySQL")) {
+            this.jdbcTemplate.update("UPDATE hibernate_sequence SET next_val = ? WHERE next_val < ?", next, next);
+        } else {
+            logger.warn("Don't know how to advance hibernate_sequence on {}, its next value must be at least {}",
+                product, next);
+        }
+    }
+
+    private static String telephone(SplittableRandom random) {
+        return "608" + (2000000 + random.nextInt(8000000));
+    }
+
+    private static int poisson(SplittableRandom random, double mean) {
+        double limit = Math.exp(-mean);
+        double product = random.nextDouble();
+        int count = 0;
+        while (product > limit) {
+            product *= random.nextDouble();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * A Pareto distributed visit count with the given mean, capped at 200 times the mean.
+     */
+    private static int visits(SplittableRandom random, double mean) {
+        if (mean <= 0) {
+            return 0;
+        }
+        double scale = mean * (VISITS_ALPHA - 1) / VISITS_ALPHA;
+        double pareto = scale / Math.pow(1 - random.nextDouble(), 1 / VISITS_ALPHA);
+        return (int) Math.min(Math.floor(pareto + random.nextDouble()), 200 * mean);
+    }
+
+    /**
+     * What was generated by one {@link #generate(DatasetProperties)} call.
+     */
+    public static final class Summary {
+
+        private long owners;
+
+        private long pets;
+
+        private long visits;
+
+        private long vets;
+
+        private long elapsedNanos;
+
+        public long getOwners() {
+            return this.owners;
+        }
+
+        public long getPets() {
+            return this.pets;
+        }
+
+        public long getVisits() {
+            return this.visits;
+        }
+
+        public long getVets() {
+            return this.vets;
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(this.elapsedNanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d owners, %d pets, %d visits and %d vets", this.owners, this.pets, this.visits,
+                this.vets);
+        }
+
+    }
+
+    /**
+     * The next free id of each generated table.
+     */
+    private static final class Ids {
+
+        private int nextVet;
+
+        private int nextOwner;
+
+        private int nextPet;
+
+        private int nextVisit;
+
+        Ids(JdbcTemplate jdbcTemplate) {
+            this.nextVet = maxId(jdbcTemplate, "vets") + 1;
+            this.nextOwner = maxId(jdbcTemplate, "owners") + 1;
+            this.nextPet = maxId(jdbcTemplate, "pets") + 1;
+            this.nextVisit = maxId(jdbcTemplate, "visits") + 1;
+        }
+
+        int max() {
+            return Math.max(Math.max(this.nextVet, this.nextOwner), Math.max(this.nextPet, this.nextVisit)) - 1;
+        }
+
+        private static int maxId(JdbcTemplate jdbcTemplate, String table) {
+            return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Integer.class);
+        }
+
+    }
+
+    /**
+     * The weighted word lists, and the pet types and specialties of the database.
+     */
+    private static final class Vocabulary {
+
+        private final Weighted<String> lastNames;
+
+        private final Weighted<String> firstNames = Weighted.zipf(FIRST_NAMES, 0.5);
+
+        private final Weighted<String> cities = Weighted.zipf(CITIES, 1.0);
+
+        private final Weighted<String> streets = Weighted.zipf(STREETS, 0.5);
+
+        private final Weighted<String> petNames = Weighted.zipf(PET_NAMES, 0.8);
+
+        private final Weighted<String> reasons = Weighted.zipf(VISIT_REASONS, 1.0);
+
+        private final Weighted<Integer> types;
+
+        private final List<Integer> specialties;
+
+        Vocabulary(JdbcTemplate jdbcTemplate) {
+            // the common names first, then a long tail of invented ones
+            List<String> lastNames = new ArrayList<>(COMMON_LAST_NAMES);
+            for (String ending : NAME_ENDINGS) {
+                for (String stem : NAME_STEMS) {
+                    lastNames.add(stem + ending);
+                }
+            }
+            this.lastNames = Weighted.zipf(lastNames, 0.75);
+            List<Integer> typeIds = new ArrayList<>();
+            List<Double> typeWeights = new ArrayList<>();
+            jdbcTemplate.query("SELECT id, name FROM types ORDER BY id", row -> {
+                typeIds.add(row.getInt(1));
+                typeWeights.add(TYPE_WEIGHTS.getOrDefault(row.getString(2), 3.0));
+            });
+            if (typeIds.isEmpty()) {
+                throw new IllegalStateException("The types table is empty");
+            }
+            this.types = new Weighted<>(typeIds, typeWeights.stream().mapToDouble(Double::doubleValue).toArray());
+            this.specialties = jdbcTemplate.queryForList("SELECT id FROM specialties ORDER BY id", Integer.class);
+        }
+
+    }
+
+    /**
+     * Draws values with fixed relative weights, by binary search over the cumulative weights.
+     */
+    private static final class Weighted<T> {
+
+        private final List<T> values;
+
+        private final double[] cumulative;
+
+        Weighted(List<T> values, double[] weights) {
+            this.values = values;
+            this.cumulative = new double[weights.length];
+            double sum = 0;
+            for (int i = 0; i < weights.length; i++) {
+                sum += weights[i];
+                this.cumulative[i] = sum;
+            }
+        }
+
+        /**
+         * @param exponent 0 for a uniform distribution; the larger, the more often the first values come up
+         */
+        static <T> Weighted<T> zipf(List<T> values, double exponent) {
+            double[] weights = new double[values.size()];
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = 1 / Math.pow(i + 1, exponent);
+            }
+            return new Weighted<>(values, weights);
+        }
+
+        T next(SplittableRandom random) {
+            double point = random.nextDouble() * this.cumulative[this.cumulative.length - 1];
+            int index = Arrays.binarySearch(this.cumulative, point);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return this.values.get(Math.min(index, this.values.size() - 1));
+        }
+
+    }
+
+}
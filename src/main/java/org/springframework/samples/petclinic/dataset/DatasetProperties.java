@@ -0,0 +1,99 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.dataset;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Size and shape of a synthetic data set, see {@link DatasetGenerator}. The defaults produce
+ * 10,000 owners; <code>owners=1000000</code> gives about 2 million pets and 10 million visits.
+ */
+@ConfigurationProperties("petclinic.dataset")
+public class DatasetProperties {
+
+    /**
+     * Seed of the random generator; the same seed on the same starting data gives the same rows.
+     */
+    private long seed = 42;
+
+    private int owners = 10000;
+
+    /**
+     * Average number of pets per owner, Poisson distributed.
+     */
+    private double petsPerOwner = 2;
+
+    /**
+     * Average number of visits per pet, Pareto distributed so that a few pets get most visits.
+     */
+    private double visitsPerPet = 5;
+
+    private int vets = 100;
+
+    /**
+     * Number of owners written per transaction, together with their pets and visits.
+     */
+    private int batchSize = 1000;
+
+    public long getSeed() {
+        return this.seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getOwners() {
+        return this.owners;
+    }
+
+    public void setOwners(int owners) {
+        this.owners = owners;
+    }
+
+    public double getPetsPerOwner() {
+        return this.petsPerOwner;
+    }
+
+    public void setPetsPerOwner(double petsPerOwner) {
+        this.petsPerOwner = petsPerOwner;
+    }
+
+    public double getVisitsPerPet() {
+        return this.visitsPerPet;
+    }
+
+    public void setVisitsPerPet(double visitsPerPet) {
+        this.visitsPerPet = visitsPerPet;
+    }
+
+    public int getVets() {
+        return this.vets;
+    }
+
+    public void setVets(int vets) {
+        this.vets = vets;
+    }
+
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+}
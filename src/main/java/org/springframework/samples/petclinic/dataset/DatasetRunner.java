@@ -0,0 +1,67 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.dataset;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Generates a synthetic data set on startup, before the application is ready, e.g.
+ * <code>./mvnw spring-boot:run -Dspring-boot.run.profiles=dataset -Dspring-boot.run.arguments=--petclinic.dataset.owners=1000000</code>
+ * for the embedded database, or with the profiles <code>mysql,dataset</code> to fill a MySQL
+ * database once. Nothing is generated if the database already holds at least as many owners as
+ * asked for, so a filled MySQL database is not grown on every restart.
+ */
+@Component
+@Profile("dataset")
+@EnableConfigurationProperties(DatasetProperties.class)
+class DatasetRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatasetRunner.class);
+
+    private final DatasetGenerator generator;
+
+    private final DatasetProperties properties;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public DatasetRunner(DatasetGenerator generator, DatasetProperties properties, JdbcTemplate jdbcTemplate) {
+        this.generator = generator;
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int existing = this.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM owners", Integer.class);
+        if (existing >= this.properties.getOwners()) {
+            logger.info("Not generating a data set, there are already {} owners", existing);
+            return;
+        }
+        logger.info("Generating {} owners with seed {}", this.properties.getOwners(), this.properties.getSeed());
+        DatasetGenerator.Summary summary = this.generator.generate(this.properties);
+        logger.info("Generated {} in {} ms", summary, summary.getElapsedMillis());
+    }
+
+}
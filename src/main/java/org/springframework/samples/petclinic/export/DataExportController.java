@@ -0,0 +1,71 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.export;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Full extracts of the clinic data, e.g. <code>/export/visits?format=csv&amp;gzip=true</code>. The
+ * response is written while the rows are read, see {@link DataExporter}. The extracts include
+ * every owner's address and telephone number, so the endpoints only exist when
+ * <code>petclinic.export.web.enabled</code> is set.
+ */
+@Controller
+@ConditionalOnProperty(prefix = "petclinic.export.web", name = "enabled", havingValue = "true")
+class DataExportController {
+
+    private final DataExporter exporter;
+
+    @Autowired
+    public DataExportController(DataExporter exporter) {
+        this.exporter = exporter;
+    }
+
+    @GetMapping("/export/{table}")
+    public void export(@PathVariable("table") String table,
+                       @RequestParam(name = "format", defaultValue = "ndjson") String format,
+                       @RequestParam(name = "gzip", defaultValue = "false") boolean gzip,
+                       HttpServletResponse response) throws IOException {
+        DataExporter.Table exported = parse(DataExporter.Table.class, table, HttpStatus.NOT_FOUND);
+        DataExporter.Format written = parse(DataExporter.Format.class, format, HttpStatus.BAD_REQUEST);
+        String fileName = exported.getFileName() + "." + written.getExtension() + (gzip ? ".gz" : "");
+        response.setContentType(gzip ? "application/gzip" : written.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        this.exporter.export(exported, written, gzip, response.getOutputStream());
+    }
+
+    private static <E extends Enum<E>> E parse(Class<E> type, String value, HttpStatus status) {
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(status, "Unknown " + type.getSimpleName().toLowerCase(Locale.ROOT) + " " + value);
+        }
+    }
+
+}
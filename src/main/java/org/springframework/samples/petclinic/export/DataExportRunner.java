@@ -0,0 +1,80 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.export;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Command line export, one file per table, e.g.
+ * <code>java -jar petclinic.jar --spring.profiles.active=export --export.dir=/backups --export.format=csv --export.gzip</code>.
+ * <code>--export.tables</code> takes a comma-separated list and defaults to all tables. The
+ * <code>export</code> profile starts no web server, so the application exits once the files are
+ * written.
+ */
+@Component
+@Profile("export")
+class DataExportRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataExportRunner.class);
+
+    private final DataExporter exporter;
+
+    @Autowired
+    public DataExportRunner(DataExporter exporter) {
+        this.exporter = exporter;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        Path dir = Paths.get(option(args, "export.dir", "."));
+        DataExporter.Format format = DataExporter.Format.valueOf(option(args, "export.format", "ndjson").toUpperCase(Locale.ROOT));
+        boolean gzip = args.containsOption("export.gzip") && !"false".equals(option(args, "export.gzip", "true"));
+        List<String> tables = Arrays.asList(option(args, "export.tables", "owners,pets,visits").split(","));
+        Files.createDirectories(dir);
+        for (String name : tables) {
+            DataExporter.Table table = DataExporter.Table.valueOf(name.trim().toUpperCase(Locale.ROOT));
+            Path file = dir.resolve(table.getFileName() + "." + format.getExtension() + (gzip ? ".gz" : ""));
+            long start = System.nanoTime();
+            long rows;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+                rows = this.exporter.export(table, format, gzip, out);
+            }
+            logger.info("Exported {} rows to {} in {} ms", rows, file, (System.nanoTime() - start) / 1000000);
+        }
+    }
+
+    private static String option(ApplicationArguments args, String name, String defaultValue) {
+        List<String> values = args.getOptionValues(name);
+        return values == null || values.isEmpty() ? defaultValue : values.get(0);
+    }
+
+}
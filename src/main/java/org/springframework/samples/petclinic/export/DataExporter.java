@@ -0,0 +1,296 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+import javax.sql.DataSource;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Streams whole tables to an output stream as CSV or newline-delimited JSON. Rows are read
+ * through a forward-only JDBC cursor with a fetch size of
+ * <code>petclinic.export.fetch-size</code> (default 1000) and written as they are read, through
+ * a 64 KB buffer. Memory stays constant however large the table is; no entities are created.
+ * <p>
+ * MySQL only honours the fetch size with <code>useCursorFetch=true</code> on the connection URL;
+ * without it the driver reads the whole result into memory.
+ */
+@Component
+public class DataExporter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The exportable tables, each read in id order.
+     */
+    public enum Table {
+
+        OWNERS("SELECT id, first_name, last_name, address, city, telephone FROM owners ORDER BY id"),
+
+        PETS("SELECT p.id, p.name, p.birth_date, t.name AS type, p.owner_id "
+            + "FROM pets p JOIN types t ON t.id = p.type_id ORDER BY p.id"),
+
+        VISITS("SELECT id, pet_id, visit_date, description FROM visits ORDER BY id");
+
+        private final String sql;
+
+        Table(String sql) {
+            this.sql = sql;
+        }
+
+        public String getFileName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+    }
+
+    public enum Format {
+
+        /**
+         * A header line with the column names, then one line per row.
+         */
+        CSV("csv", "text/csv;charset=UTF-8"),
+
+        /**
+         * One JSON object per row and line.
+         */
+        NDJSON("ndjson", "application/x-ndjson");
+
+        private final String extension;
+
+        private final String contentType;
+
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        public String getExtension() {
+            return this.extension;
+        }
+
+        public String getContentType() {
+            return this.contentType;
+        }
+
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    @Autowired
+    public DataExporter(DataSource dataSource, @Value("${petclinic.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Write every row of a table to the stream. The stream is flushed but not closed.
+     *
+     * @param table the table to export
+     * @param format how to write the rows
+     * @param gzip whether to gzip what is written
+     * @param out where to write to
+     * @return the number of rows written
+     */
+    public long export(Table table, Format format, boolean gzip, OutputStream out) throws IOException {
+        GzipStream compressed = gzip ? new GzipStream(out) : null;
+        try {
+            RowWriter writer = format == Format.CSV ? new CsvRowWriter(compressed != null ? compressed : out)
+                : new NdjsonRowWriter(compressed != null ? compressed : out);
+            long rows;
+            try {
+                rows = this.jdbcTemplate.query(table.sql, (ResultSetExtractor<Long>) rs -> {
+                    try {
+                        writer.start(columnNames(rs.getMetaData()));
+                        long count = 0;
+                        while (rs.next()) {
+                            writer.row(rs);
+                            count++;
+                        }
+                        return count;
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+            writer.finish();
+            if (compressed != null) {
+                compressed.finish();
+            }
+            out.flush();
+            return rows;
+        } finally {
+            if (compressed != null) {
+                compressed.release();
+            }
+        }
+    }
+
+    private static String[] columnNames(ResultSetMetaData metaData) throws SQLException {
+        String[] names = new String[metaData.getColumnCount()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = metaData.getColumnLabel(i + 1).toLowerCase(Locale.ROOT);
+        }
+        return names;
+    }
+
+    /**
+     * Gzips into the caller's stream without closing it. Closing is what would free the native
+     * zlib memory of the deflater, so that is done by {@link #release()} instead, on success and
+     * failure alike.
+     */
+    private static final class GzipStream extends GZIPOutputStream {
+
+        GzipStream(OutputStream out) throws IOException {
+            super(out, BUFFER_SIZE);
+        }
+
+        void release() {
+            this.def.end();
+        }
+
+    }
+
+    private interface RowWriter {
+
+        void start(String[] columns) throws IOException;
+
+        void row(ResultSet rs) throws IOException, SQLException;
+
+        void finish() throws IOException;
+
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final Writer out;
+
+        private int columns;
+
+        CsvRowWriter(OutputStream out) {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+
+        @Override
+        public void start(String[] columns) throws IOException {
+            this.columns = columns.length;
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    this.out.write(',');
+                }
+                this.out.write(columns[i]);
+            }
+            this.out.write('\n');
+        }
+
+        @Override
+        public void row(ResultSet rs) throws IOException, SQLException {
+            for (int i = 1; i <= this.columns; i++) {
+                if (i > 1) {
+                    this.out.write(',');
+                }
+                Object value = rs.getObject(i);
+                if (value != null) {
+                    writeField(value.toString());
+                }
+            }
+            this.out.write('\n');
+        }
+
+        private void writeField(String value) throws IOException {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+                this.out.write(value);
+                return;
+            }
+            this.out.write('"');
+            this.out.write(value.replace("\"", "\"\""));
+            this.out.write('"');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            this.out.flush();
+        }
+
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+
+        private final JsonGenerator json;
+
+        private String[] columns;
+
+        NdjsonRowWriter(OutputStream out) throws IOException {
+            this.json = DataExporter.this.jsonFactory.createGenerator(out);
+            this.json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.json.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void start(String[] columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public void row(ResultSet rs) throws IOException, SQLException {
+            this.json.writeStartObject();
+            for (int i = 0; i < this.columns.length; i++) {
+                Object value = rs.getObject(i + 1);
+                this.json.writeFieldName(this.columns[i]);
+                if (value == null) {
+                    this.json.writeNull();
+                } else if (value instanceof Number) {
+                    this.json.writeNumber(((Number) value).longValue());
+                } else {
+                    this.json.writeString(value.toString());
+                }
+            }
+            this.json.writeEndObject();
+            this.json.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            this.json.flush();
+        }
+
+    }
+
+}
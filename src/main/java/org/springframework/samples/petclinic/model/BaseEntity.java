@@ -21,18 +21,28 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.MappedSuperclass;
+import javax.persistence.SequenceGenerator;
 
 /**
  * Simple JavaBean domain object with an id property. Used as a base class for objects
  * needing this property.
+ * <p>
+ * Ids come from the shared <code>hibernate_sequence</code> (a table on MySQL) through Hibernate's
+ * pooled optimizer, which reserves {@value #ID_ALLOCATION_SIZE} ids per round trip. Unlike
+ * <code>IDENTITY</code> this lets Hibernate delay inserts until flush and send them in JDBC
+ * batches.
  *
  * @author Ken Krebs
  * @author Juergen Hoeller
  */
 @MappedSuperclass
 public class BaseEntity implements Serializable {
+
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "petclinic_id")
+    @SequenceGenerator(name = "petclinic_id", sequenceName = "hibernate_sequence", allocationSize = ID_ALLOCATION_SIZE)
     private Integer id;
 
     public Integer getId() {
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Distinct owner last names with the number of owners having each, for type-ahead. Names are
+ * stored lower-cased in a character trie. Each node caches the {@value #TOP} most common names
+ * below it, so a completion walks the prefix and returns that node's cached list, whatever the
+ * number of names below it.
+ * <p>
+ * Changes are made by one thread at a time, by {@link OwnerSearchIndex} under its lock. Each
+ * change recomputes the cached lists on the path from the changed name up to the root. Child
+ * arrays and cached lists are replaced rather than modified, so completions can run
+ * concurrently without locking.
+ */
+final class LastNameTrie {
+
+    static final int TOP = 10;
+
+    private static final Comparator<Suggestion> BY_COUNT = Comparator.comparingInt(Suggestion::getCount).reversed()
+        .thenComparing(Suggestion::getLastName, String.CASE_INSENSITIVE_ORDER);
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private static final Suggestion[] NO_SUGGESTIONS = new Suggestion[0];
+
+    private final Node root = new Node('\0');
+
+    /**
+     * Count one more owner with this last name.
+     * @param key the lower-cased last name
+     * @param lastName the last name as it is displayed
+     */
+    void add(String key, String lastName) {
+        Node[] path = path(key, true);
+        Node node = path[key.length()];
+        node.count++;
+        node.lastName = lastName;
+        refresh(path);
+    }
+
+    /**
+     * Count one more owner with this last name without updating the cached completions, to load
+     * many names before a single {@link #refreshAll()}.
+     */
+    void addWithoutRefresh(String key, String lastName) {
+        Node node = path(key, true)[key.length()];
+        node.count++;
+        node.lastName = lastName;
+    }
+
+    /**
+     * Recompute the cached completions of every node, children first.
+     */
+    void refreshAll() {
+        refreshBelow(this.root);
+    }
+
+    /**
+     * Count one owner less with this last name.
+     * @param key the lower-cased last name
+     */
+    void remove(String key) {
+        Node[] path = path(key, false);
+        if (path == null || path[path.length - 1].count == 0) {
+            return;
+        }
+        Node node = path[path.length - 1];
+        if (--node.count == 0) {
+            node.lastName = null;
+        }
+        refresh(path);
+    }
+
+    /**
+     * @param prefix the lower-cased start of the last name
+     * @param limit the maximum number of suggestions, at most {@value #TOP}
+     * @return the most common last names starting with the prefix, most common first
+     */
+    List<Suggestion> complete(String prefix, int limit) {
+        Node node = this.root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        if (node == null) {
+            return Collections.emptyList();
+        }
+        Suggestion[] top = node.top;
+        return Collections.unmodifiableList(Arrays.asList(top).subList(0, Math.min(limit, top.length)));
+    }
+
+    private Node[] path(String key, boolean create) {
+        Node[] path = new Node[key.length() + 1];
+        path[0] = this.root;
+        for (int i = 0; i < key.length(); i++) {
+            Node child = path[i].child(key.charAt(i));
+            if (child == null) {
+                if (!create) {
+                    return null;
+                }
+                child = path[i].addChild(key.charAt(i));
+            }
+            path[i + 1] = child;
+        }
+        return path;
+    }
+
+    private void refreshBelow(Node node) {
+        for (Node child : node.children) {
+            refreshBelow(child);
+        }
+        node.refreshTop();
+    }
+
+    private void refresh(Node[] path) {
+        for (int i = path.length - 1; i >= 0; i--) {
+            path[i].refreshTop();
+        }
+    }
+
+    /**
+     * A last name and how many owners have it.
+     */
+    static final class Suggestion {
+
+        private final String lastName;
+
+        private final int count;
+
+        Suggestion(String lastName, int count) {
+            this.lastName = lastName;
+            this.count = count;
+        }
+
+        public String getLastName() {
+            return this.lastName;
+        }
+
+        public int getCount() {
+            return this.count;
+        }
+
+    }
+
+    private static final class Node {
+
+        private final char label;
+
+        /**
+         * Sorted by label.
+         */
+        private volatile Node[] children = NO_CHILDREN;
+
+        private volatile Suggestion[] top = NO_SUGGESTIONS;
+
+        private int count;
+
+        private String lastName;
+
+        Node(char label) {
+            this.label = label;
+        }
+
+        Node child(char label) {
+            Node[] children = this.children;
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char current = children[middle].label;
+                if (current < label) {
+                    low = middle + 1;
+                } else if (current > label) {
+                    high = middle - 1;
+                } else {
+                    return children[middle];
+                }
+            }
+            return null;
+        }
+
+        Node addChild(char label) {
+            Node child = new Node(label);
+            Node[] children = this.children;
+            int insertAt = 0;
+            while (insertAt < children.length && children[insertAt].label < label) {
+                insertAt++;
+            }
+            Node[] added = new Node[children.length + 1];
+            System.arraycopy(children, 0, added, 0, insertAt);
+            added[insertAt] = child;
+            System.arraycopy(children, insertAt, added, insertAt + 1, children.length - insertAt);
+            this.children = added;
+            return child;
+        }
+
+        void refreshTop() {
+            List<Suggestion> candidates = new ArrayList<>();
+            if (this.count > 0) {
+                candidates.add(new Suggestion(this.lastName, this.count));
+            }
+            for (Node child : this.children) {
+                Collections.addAll(candidates, child.top);
+            }
+            candidates.sort(BY_COUNT);
+            this.top = candidates.subList(0, Math.min(TOP, candidates.size())).toArray(NO_SUGGESTIONS);
+        }
+
+    }
+
+}
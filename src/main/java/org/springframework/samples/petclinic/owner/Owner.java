@@ -17,6 +17,7 @@ package org.springframework.samples.petclinic.owner;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -24,13 +25,17 @@ import java.util.Set;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedEntityGraphs;
+import javax.persistence.NamedSubgraph;
 import javax.persistence.OneToMany;
+import javax.persistence.OrderBy;
 import javax.persistence.Table;
 import javax.validation.constraints.Digits;
 import javax.validation.constraints.NotEmpty;
 
-import org.springframework.beans.support.MutableSortDefinition;
-import org.springframework.beans.support.PropertyComparator;
+import org.hibernate.annotations.BatchSize;
 import org.springframework.core.style.ToStringCreator;
 import org.springframework.samples.petclinic.model.Person;
 
@@ -44,7 +49,26 @@ import org.springframework.samples.petclinic.model.Person;
  */
 @Entity
 @Table(name = "owners")
+@NamedEntityGraphs({
+    @NamedEntityGraph(name = "Owner.withPets",
+        attributeNodes = @NamedAttributeNode(value = "pets", subgraph = "pet"),
+        subgraphs = @NamedSubgraph(name = "pet", attributeNodes = @NamedAttributeNode("type"))),
+    @NamedEntityGraph(name = "Owner.withPetsAndVisits",
+        attributeNodes = @NamedAttributeNode(value = "pets", subgraph = "pet"),
+        subgraphs = @NamedSubgraph(name = "pet", attributeNodes = {
+            @NamedAttributeNode("type"), @NamedAttributeNode("visits") }))
+})
 public class Owner extends Person {
+
+    /**
+     * How many lazy pet or visit collections are initialized by one query when they are reached
+     * outside of an entity graph.
+     */
+    static final int BATCH_SIZE = 20;
+
+    private static final Comparator<Pet> PETS_BY_NAME =
+        Comparator.comparing(Pet::getName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+
     @Column(name = "address")
     @NotEmpty
     private String address;
@@ -58,9 +82,24 @@ public class Owner extends Person {
     @Digits(fraction = 0, integer = 10)
     private String telephone;
 
+    /**
+     * Incremented in the database whenever the owner, one of its pets or one of their visits is
+     * saved (see {@link OwnerRepository#touch}), never written from the entity itself.
+     */
+    @Column(name = "version", updatable = false)
+    private int version;
+
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "owner")
+    @OrderBy("name")
+    @BatchSize(size = BATCH_SIZE)
     private Set<Pet> pets;
 
+    /**
+     * Sorted, read-only view of {@link #pets}, built on first access and discarded whenever a pet
+     * is added, so that repeated calls from the views do not copy and sort the set again.
+     */
+    private transient List<Pet> sortedPets;
+
     public String getAddress() {
         return this.address;
     }
@@ -85,6 +124,10 @@ public class Owner extends Person {
         this.telephone = telephone;
     }
 
+    public int getVersion() {
+        return this.version;
+    }
+
     protected Set<Pet> getPetsInternal() {
         if (this.pets == null) {
             this.pets = new HashSet<>();
@@ -94,18 +137,24 @@ public class Owner extends Person {
 
     protected void setPetsInternal(Set<Pet> pets) {
         this.pets = pets;
+        this.sortedPets = null;
     }
 
     public List<Pet> getPets() {
-        List<Pet> sortedPets = new ArrayList<>(getPetsInternal());
-        PropertyComparator.sort(sortedPets,
-                new MutableSortDefinition("name", true, true));
-        return Collections.unmodifiableList(sortedPets);
+        List<Pet> sorted = this.sortedPets;
+        if (sorted == null) {
+            sorted = new ArrayList<>(getPetsInternal());
+            sorted.sort(PETS_BY_NAME);
+            sorted = Collections.unmodifiableList(sorted);
+            this.sortedPets = sorted;
+        }
+        return sorted;
     }
 
     public void addPet(Pet pet) {
         if (pet.isNew()) {
             getPetsInternal().add(pet);
+            this.sortedPets = null;
         }
         pet.setOwner(this);
     }
@@ -16,6 +16,7 @@
 package org.springframework.samples.petclinic.owner;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -24,10 +25,16 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.InitBinder;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.ModelAndView;
 
 import javax.validation.Valid;
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -40,12 +47,15 @@ import java.util.Map;
 class OwnerController {
 
     private static final String VIEWS_OWNER_CREATE_OR_UPDATE_FORM = "owners/createOrUpdateOwnerForm";
+    private static final int MAX_PAGE_SIZE = 100;
     private final OwnerRepository owners;
+    private final OwnerSearchIndex searchIndex;
 
 
     @Autowired
-    public OwnerController(OwnerRepository clinicService) {
+    public OwnerController(OwnerRepository clinicService, OwnerSearchIndex searchIndex) {
         this.owners = clinicService;
+        this.searchIndex = searchIndex;
     }
 
     @InitBinder
@@ -77,33 +87,101 @@ class OwnerController {
     }
 
     @GetMapping("/owners")
-    public String processFindForm(Owner owner, BindingResult result, Map<String, Object> model) {
+    public String processFindForm(Owner owner, BindingResult result,
+                                  @RequestParam(name = "after", required = false) String after,
+                                  @RequestParam(name = "before", required = false) String before,
+                                  @RequestParam(name = "size", defaultValue = "20") int size,
+                                  Map<String, Object> model) {
 
         // allow parameterless GET request for /owners to return all records
         if (owner.getLastName() == null) {
             owner.setLastName(""); // empty string signifies broadest possible search
         }
 
-        // find owners by last name
-        Collection<Owner> results = this.owners.findByLastName(owner.getLastName());
-        if (results.isEmpty()) {
+        // find one page of owners by last name, fetching one extra row to know whether there is more
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int limit = pageSize + 1;
+        OwnerCursor beforeCursor = OwnerCursor.parse(before);
+        OwnerCursor afterCursor = OwnerCursor.parse(after);
+        List<OwnerSummary> results;
+        boolean hasPrevious;
+        boolean hasNext;
+        if (beforeCursor != null) {
+            results = new ArrayList<>(findBefore(owner.getLastName(), beforeCursor, limit));
+            hasPrevious = results.size() > pageSize;
+            results = results.subList(0, Math.min(pageSize, results.size()));
+            Collections.reverse(results);
+            hasNext = true;
+        } else {
+            results = findAfter(owner.getLastName(), afterCursor, limit);
+            hasNext = results.size() > pageSize;
+            results = results.subList(0, Math.min(pageSize, results.size()));
+            hasPrevious = afterCursor != null;
+        }
+
+        boolean firstPage = beforeCursor == null && afterCursor == null;
+        if (results.isEmpty() && firstPage) {
             // no owners found
             result.rejectValue("lastName", "notFound", "not found");
             return "owners/findOwners";
-        } else if (results.size() == 1) {
+        } else if (results.size() == 1 && firstPage && !hasNext) {
             // 1 owner found
-            owner = results.iterator().next();
-            return "redirect:/owners/" + owner.getId();
+            return "redirect:/owners/" + results.get(0).getId();
         } else {
             // multiple owners found
             model.put("selections", results);
+            model.put("pageSize", pageSize);
+            model.put("previousCursor", hasPrevious && !results.isEmpty() ? OwnerCursor.of(results.get(0)).toString() : null);
+            model.put("nextCursor", hasNext && !results.isEmpty() ? OwnerCursor.of(results.get(results.size() - 1)).toString() : null);
             return "owners/ownersList";
         }
     }
 
+    /**
+     * Type-ahead for the last name field of the find form, answered from memory.
+     *
+     * @param prefix the start of a last name
+     * @param limit how many suggestions to return, at most {@value LastNameTrie#TOP}
+     * @return the most common matching last names with their number of owners
+     */
+    @GetMapping(value = "/owners/suggestions", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public List<LastNameTrie.Suggestion> suggestLastNames(@RequestParam(name = "prefix", defaultValue = "") String prefix,
+                                                          @RequestParam(name = "limit", defaultValue = "8") int limit) {
+        return this.searchIndex.suggestLastNames(prefix, Math.max(0, Math.min(limit, LastNameTrie.TOP)));
+    }
+
+    /**
+     * Search the in-memory index and load only the summaries of the page found. While the index is
+     * still loading, search the database by last name prefix instead.
+     */
+    private List<OwnerSummary> findAfter(String query, OwnerCursor after, int limit) {
+        if (this.searchIndex.isReady()) {
+            return hydrate(this.searchIndex.findAfter(query, after, limit));
+        }
+        return this.owners.findByLastNameAfter(query,
+            after != null ? after.getLastName() : "", after != null ? after.getId() : 0, limit);
+    }
+
+    private List<OwnerSummary> findBefore(String query, OwnerCursor before, int limit) {
+        if (this.searchIndex.isReady()) {
+            return hydrate(this.searchIndex.findBefore(query, before, limit));
+        }
+        return this.owners.findByLastNameBefore(query, before.getLastName(), before.getId(), limit);
+    }
+
+    private List<OwnerSummary> hydrate(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<OwnerSummary> summaries = new ArrayList<>(this.owners.findSummariesByIds(ids));
+        summaries.sort(Comparator.comparingInt(summary -> ids.indexOf(summary.getId())));
+        return summaries;
+    }
+
     @GetMapping("/owners/{ownerId}/edit")
     public String initUpdateOwnerForm(@PathVariable("ownerId") int ownerId, Model model) {
-        Owner owner = this.owners.findById(ownerId);
+        Owner owner = this.owners.findWithoutPetsById(ownerId);
         model.addAttribute(owner);
         return VIEWS_OWNER_CREATE_OR_UPDATE_FORM;
     }
@@ -120,15 +198,23 @@ class OwnerController {
     }
 
     /**
-     * Custom handler for displaying an owner.
+     * Custom handler for displaying an owner. The page is tagged with the owner's version, so a
+     * revalidation costs a single version lookup and answers 304 without loading the owner. No
+     * Last-Modified is sent: the version counter stands in for it, since it changes with every save
+     * of the owner, its pets or their visits, where a timestamp column would need the same bumps and
+     * could miss two saves within its resolution.
      *
      * @param ownerId the ID of the owner to display
-     * @return a ModelMap with the model attributes for the view
+     * @return a ModelMap with the model attributes for the view, or null if not modified
      */
     @GetMapping("/owners/{ownerId}")
-    public ModelAndView showOwner(@PathVariable("ownerId") int ownerId) {
+    public ModelAndView showOwner(@PathVariable("ownerId") int ownerId, WebRequest request) {
+        Integer version = this.owners.findVersionById(ownerId);
+        if (version != null && request.checkNotModified("W/\"owner-" + ownerId + "-" + version + "\"")) {
+            return null;
+        }
         ModelAndView mav = new ModelAndView("owners/ownerDetails");
-        mav.addObject(this.owners.findById(ownerId));
+        mav.addObject("owner", this.owners.findDetailsById(ownerId));
         return mav;
     }
 
@@ -0,0 +1,516 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import javax.validation.Validator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+
+/**
+ * Imports owners and their pets from a CSV file with a header row, such as a dump from another
+ * clinic's system. The recognised columns, in any order, are <code>owner_id</code> (optional),
+ * <code>first_name</code>, <code>last_name</code>, <code>address</code>, <code>city</code>,
+ * <code>telephone</code>, <code>pet_name</code>, <code>pet_birth_date</code> (yyyy-MM-dd) and
+ * <code>pet_type</code>. Consecutive rows with the same <code>owner_id</code> are one owner with
+ * one pet per row, the owner columns are taken from the first of them. Without an
+ * <code>owner_id</code> every row is an owner of its own. Fields may be quoted, but a row must fit
+ * on one line.
+ * <p>
+ * The file is read on the calling thread in chunks of whole owners. Binding and validation run in
+ * parallel on a pool of worker threads: owners are checked against their bean validation
+ * constraints, pets with the {@link PetValidator}, and pet types are looked up by name in the
+ * {@link PetTypeRegistry}. The chunks are written back in file order, each in one transaction so
+ * that its inserts go out in JDBC batches. At most two chunks per worker are read ahead.
+ * <p>
+ * An invalid owner rejects all of its rows, an invalid pet only its own row. If a chunk fails to
+ * commit, its owners are saved one by one so that only the offending ones are rejected. Rejected
+ * rows are appended to <code>&lt;file&gt;.rejected.csv</code> with the reason, and after every
+ * chunk the number of the last line it covers is written to <code>&lt;file&gt;.checkpoint</code>.
+ * A later import of the same file skips everything up to the checkpoint, so an interrupted
+ * import carries on where it stopped.
+ */
+@Component
+class OwnerCsvImporter {
+
+    static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+    static final String REJECTED_SUFFIX = ".rejected.csv";
+
+    private final Validator validator;
+
+    private final PetValidator petValidator = new PetValidator();
+
+    private final PetTypeRegistry types;
+
+    private final OwnerRepository owners;
+
+    private final TransactionTemplate transactions;
+
+    private final int chunkSize;
+
+    private final int threads;
+
+    @Autowired
+    public OwnerCsvImporter(Validator validator, PetTypeRegistry types, OwnerRepository owners,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${petclinic.import.chunk-size:500}") int chunkSize,
+                            @Value("${petclinic.import.threads:0}") int threads) {
+        this.validator = validator;
+        this.types = types;
+        this.owners = owners;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @param file the CSV file, next to which the checkpoint and rejected rows are written
+     * @param progress called on the calling thread after every chunk
+     * @return the totals of this run
+     */
+    public OwnerImportReport importOwners(Path file, Consumer<OwnerImportReport> progress) throws IOException {
+        OwnerImportReport report = new OwnerImportReport();
+        Path checkpoint = sibling(file, CHECKPOINT_SUFFIX);
+        long resumeAfter = readCheckpoint(checkpoint);
+        // load the pet types once, before the workers all ask for them
+        this.types.findAll();
+        ExecutorService workers = Executors.newFixedThreadPool(this.threads, new WorkerFactory());
+        Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, UTF_8);
+             Writer rejected = Files.newBufferedWriter(sibling(file, REJECTED_SUFFIX), UTF_8,
+                 StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            Columns columns = new Columns(reader.readLine());
+            List<OwnerRows> chunk = new ArrayList<>(this.chunkSize);
+            OwnerRows current = null;
+            long line = 1;
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (line <= resumeAfter) {
+                    report.skipped();
+                    continue;
+                }
+                if (text.trim().isEmpty()) {
+                    continue;
+                }
+                String[] fields = parseLine(text);
+                String key = columns.get(fields, Columns.OWNER_ID);
+                if (current == null || key.isEmpty() || !key.equals(current.key)) {
+                    if (chunk.size() == this.chunkSize) {
+                        List<OwnerRows> full = chunk;
+                        inFlight.add(workers.submit(() -> bind(full, columns)));
+                        chunk = new ArrayList<>(this.chunkSize);
+                    }
+                    while (inFlight.size() > 2 * this.threads) {
+                        write(await(inFlight.poll()), checkpoint, rejected, report, progress);
+                    }
+                    current = new OwnerRows(key);
+                    chunk.add(current);
+                }
+                current.rows.add(new Row(line, text, fields));
+            }
+            if (!chunk.isEmpty()) {
+                List<OwnerRows> last = chunk;
+                inFlight.add(workers.submit(() -> bind(last, columns)));
+            }
+            while (!inFlight.isEmpty()) {
+                write(await(inFlight.poll()), checkpoint, rejected, report, progress);
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        report.finish();
+        return report;
+    }
+
+    private Chunk bind(List<OwnerRows> rows, Columns columns) {
+        Chunk chunk = new Chunk(rows.get(rows.size() - 1).lastLine());
+        for (OwnerRows owner : rows) {
+            bind(owner, columns, chunk);
+        }
+        return chunk;
+    }
+
+    private void bind(OwnerRows rows, Columns columns, Chunk chunk) {
+        String[] fields = rows.rows.get(0).fields;
+        Owner owner = new Owner();
+        owner.setFirstName(columns.get(fields, Columns.FIRST_NAME));
+        owner.setLastName(columns.get(fields, Columns.LAST_NAME));
+        owner.setAddress(columns.get(fields, Columns.ADDRESS));
+        owner.setCity(columns.get(fields, Columns.CITY));
+        owner.setTelephone(columns.get(fields, Columns.TELEPHONE));
+        List<String> errors = this.validator.validate(owner).stream()
+            .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+            .sorted()
+            .collect(Collectors.toList());
+        if (!errors.isEmpty()) {
+            String reason = String.join("; ", errors);
+            rows.rows.forEach(row -> chunk.reject(row, reason));
+            return;
+        }
+        BoundOwner bound = new BoundOwner(owner);
+        for (Row row : rows.rows) {
+            String reason = bindPet(owner, row.fields, columns);
+            if (reason == null) {
+                bound.rows.add(row);
+            } else {
+                chunk.reject(row, reason);
+            }
+        }
+        chunk.owners.add(bound);
+    }
+
+    /**
+     * @return null if the row has no pet or the pet was added to the owner, otherwise why not
+     */
+    private String bindPet(Owner owner, String[] fields, Columns columns) {
+        String name = columns.get(fields, Columns.PET_NAME);
+        String birthDate = columns.get(fields, Columns.PET_BIRTH_DATE);
+        String typeName = columns.get(fields, Columns.PET_TYPE);
+        if (name.isEmpty() && birthDate.isEmpty() && typeName.isEmpty()) {
+            return null;
+        }
+        Pet pet = new Pet();
+        pet.setName(name);
+        if (!birthDate.isEmpty()) {
+            try {
+                pet.setBirthDate(Date.from(LocalDate.parse(birthDate).atStartOfDay(ZoneId.systemDefault()).toInstant()));
+            } catch (DateTimeParseException ex) {
+                return "birthDate: not a yyyy-MM-dd date: " + birthDate;
+            }
+        }
+        if (!typeName.isEmpty()) {
+            PetType type = this.types.findByName(typeName);
+            if (type == null) {
+                type = this.types.findByName(typeName.toLowerCase(Locale.ROOT));
+            }
+            if (type == null) {
+                return "type: unknown pet type: " + typeName;
+            }
+            pet.setType(type);
+        }
+        Errors errors = new BeanPropertyBindingResult(pet, "pet");
+        this.petValidator.validate(pet, errors);
+        if (StringUtils.hasLength(name) && owner.getPet(name) != null) {
+            errors.rejectValue("name", "duplicate", "already exists");
+        }
+        if (errors.hasErrors()) {
+            return errors.getFieldErrors().stream()
+                .map(error -> error.getField() + ": " + error.getDefaultMessage())
+                .collect(Collectors.joining("; "));
+        }
+        owner.addPet(pet);
+        return null;
+    }
+
+    private void write(Chunk chunk, Path checkpoint, Writer rejected, OwnerImportReport report,
+                       Consumer<OwnerImportReport> progress) throws IOException {
+        try {
+            this.transactions.execute(status -> {
+                chunk.owners.forEach(bound -> this.owners.save(bound.owner));
+                return null;
+            });
+        } catch (DataAccessException | TransactionException ex) {
+            saveOneByOne(chunk);
+        }
+        for (Rejection rejection : chunk.rejections) {
+            rejected.write(rejection.row.line + "," + quote(rejection.reason) + "," + rejection.row.text + "\n");
+        }
+        // a crash between these two writes repeats the rejected rows of this chunk on resume, never loses them
+        rejected.flush();
+        writeCheckpoint(checkpoint, chunk.lastLine);
+        int pets = 0;
+        int rows = 0;
+        for (BoundOwner bound : chunk.owners) {
+            pets += bound.owner.getPetsInternal().size();
+            rows += bound.rows.size();
+        }
+        report.chunkWritten(chunk.owners.size(), pets, rows, chunk.rejections.size());
+        progress.accept(report);
+    }
+
+    private void saveOneByOne(Chunk chunk) {
+        List<BoundOwner> saved = new ArrayList<>(chunk.owners.size());
+        for (BoundOwner bound : chunk.owners) {
+            // the rolled back chunk has already handed out ids
+            bound.owner.setId(null);
+            bound.owner.getPetsInternal().forEach(pet -> pet.setId(null));
+            try {
+                this.transactions.execute(status -> {
+                    this.owners.save(bound.owner);
+                    return null;
+                });
+                saved.add(bound);
+            } catch (DataAccessException | TransactionException ex) {
+                String reason = ex.getMostSpecificCause().getMessage();
+                bound.rows.forEach(row -> chunk.reject(row, reason));
+            }
+        }
+        chunk.owners.retainAll(saved);
+        chunk.rejections.sort((left, right) -> Long.compare(left.row.line, right.row.line));
+    }
+
+    private static Chunk await(Future<Chunk> pending) throws IOException {
+        try {
+            return pending.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a chunk to be validated");
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Could not bind a chunk of owners", ex.getCause());
+        }
+    }
+
+    static Path sibling(Path file, String suffix) {
+        return file.resolveSibling(file.getFileName() + suffix);
+    }
+
+    private static long readCheckpoint(Path checkpoint) throws IOException {
+        if (!Files.exists(checkpoint)) {
+            return 0;
+        }
+        return Long.parseLong(new String(Files.readAllBytes(checkpoint), UTF_8).trim());
+    }
+
+    private static void writeCheckpoint(Path checkpoint, long line) throws IOException {
+        Path next = sibling(checkpoint, ".tmp");
+        Files.write(next, Collections.singleton(Long.toString(line)), UTF_8);
+        Files.move(next, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Split one CSV line, removing the quotes around fields and un-doubling the quotes inside them.
+     */
+    static String[] parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Positions of the recognised columns in the header, -1 for those that are missing.
+     */
+    private static final class Columns {
+
+        static final int OWNER_ID = 0;
+
+        static final int FIRST_NAME = 1;
+
+        static final int LAST_NAME = 2;
+
+        static final int ADDRESS = 3;
+
+        static final int CITY = 4;
+
+        static final int TELEPHONE = 5;
+
+        static final int PET_NAME = 6;
+
+        static final int PET_BIRTH_DATE = 7;
+
+        static final int PET_TYPE = 8;
+
+        private static final List<String> NAMES = Arrays.asList("owner_id", "first_name", "last_name", "address",
+            "city", "telephone", "pet_name", "pet_birth_date", "pet_type");
+
+        private final int[] positions = new int[NAMES.size()];
+
+        Columns(String header) {
+            if (header == null) {
+                throw new IllegalArgumentException("The file is empty");
+            }
+            Arrays.fill(this.positions, -1);
+            String[] names = parseLine(header);
+            for (int i = 0; i < names.length; i++) {
+                int column = NAMES.indexOf(names[i].trim().toLowerCase(Locale.ROOT));
+                if (column >= 0) {
+                    this.positions[column] = i;
+                }
+            }
+            for (int column = FIRST_NAME; column <= TELEPHONE; column++) {
+                if (this.positions[column] < 0) {
+                    throw new IllegalArgumentException("The header has no " + NAMES.get(column) + " column: " + header);
+                }
+            }
+        }
+
+        String get(String[] fields, int column) {
+            int position = this.positions[column];
+            return position >= 0 && position < fields.length ? fields[position].trim() : "";
+        }
+
+    }
+
+    private static final class Row {
+
+        private final long line;
+
+        private final String text;
+
+        private final String[] fields;
+
+        Row(long line, String text, String[] fields) {
+            this.line = line;
+            this.text = text;
+            this.fields = fields;
+        }
+
+    }
+
+    /**
+     * The rows of one owner, as read.
+     */
+    private static final class OwnerRows {
+
+        private final String key;
+
+        private final List<Row> rows = new ArrayList<>(1);
+
+        OwnerRows(String key) {
+            this.key = key;
+        }
+
+        long lastLine() {
+            return this.rows.get(this.rows.size() - 1).line;
+        }
+
+    }
+
+    /**
+     * A valid owner, with its pets added, and the rows it was bound from.
+     */
+    private static final class BoundOwner {
+
+        private final Owner owner;
+
+        private final List<Row> rows = new ArrayList<>(1);
+
+        BoundOwner(Owner owner) {
+            this.owner = owner;
+        }
+
+    }
+
+    private static final class Rejection {
+
+        private final Row row;
+
+        private final String reason;
+
+        Rejection(Row row, String reason) {
+            this.row = row;
+            this.reason = reason;
+        }
+
+    }
+
+    private static final class Chunk {
+
+        private final long lastLine;
+
+        private final List<BoundOwner> owners = new ArrayList<>();
+
+        private final List<Rejection> rejections = new ArrayList<>();
+
+        Chunk(long lastLine) {
+            this.lastLine = lastLine;
+        }
+
+        void reject(Row row, String reason) {
+            this.rejections.add(new Rejection(row, reason));
+        }
+
+    }
+
+    private static final class WorkerFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "owner-import-" + this.count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+}
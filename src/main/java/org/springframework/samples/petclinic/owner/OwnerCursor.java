@@ -0,0 +1,72 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+/**
+ * Position of an owner in the (last name, id) ordering used by the paged owner search. Rendered
+ * into the URL as <code>id:lastName</code> so that the next and previous pages can be requested
+ * without an offset.
+ */
+final class OwnerCursor {
+
+    private final String lastName;
+
+    private final int id;
+
+    OwnerCursor(String lastName, int id) {
+        this.lastName = lastName;
+        this.id = id;
+    }
+
+    static OwnerCursor of(OwnerSummary owner) {
+        return new OwnerCursor(owner.getLastName(), owner.getId());
+    }
+
+    /**
+     * Parse a cursor previously produced by {@link #toString()}.
+     *
+     * @param text the cursor from the request, may be null
+     * @return the cursor, or null if the text is missing or malformed
+     */
+    static OwnerCursor parse(String text) {
+        if (text == null) {
+            return null;
+        }
+        int separator = text.indexOf(':');
+        if (separator < 1) {
+            return null;
+        }
+        try {
+            return new OwnerCursor(text.substring(separator + 1), Integer.parseInt(text.substring(0, separator)));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    String getLastName() {
+        return this.lastName;
+    }
+
+    int getId() {
+        return this.id;
+    }
+
+    @Override
+    public String toString() {
+        return this.id + ":" + this.lastName;
+    }
+
+}
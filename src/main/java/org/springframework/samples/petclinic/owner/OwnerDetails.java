@@ -0,0 +1,86 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * What the owner details page shows of an {@link Owner}: its own fields and its pets with their
+ * visits, copied out of the loaded entities, so that the page renders after the persistence
+ * context and its connection are gone.
+ */
+public class OwnerDetails {
+
+    private final Integer id;
+
+    private final String firstName;
+
+    private final String lastName;
+
+    private final String address;
+
+    private final String city;
+
+    private final String telephone;
+
+    private final List<PetDetails> pets;
+
+    public OwnerDetails(Owner owner) {
+        this.id = owner.getId();
+        this.firstName = owner.getFirstName();
+        this.lastName = owner.getLastName();
+        this.address = owner.getAddress();
+        this.city = owner.getCity();
+        this.telephone = owner.getTelephone();
+        this.pets = Collections.unmodifiableList(owner.getPets().stream()
+            .map(PetDetails::new)
+            .collect(Collectors.toList()));
+    }
+
+    public Integer getId() {
+        return this.id;
+    }
+
+    public String getFirstName() {
+        return this.firstName;
+    }
+
+    public String getLastName() {
+        return this.lastName;
+    }
+
+    public String getAddress() {
+        return this.address;
+    }
+
+    public String getCity() {
+        return this.city;
+    }
+
+    public String getTelephone() {
+        return this.telephone;
+    }
+
+    /**
+     * @return the pets in alphabetical order
+     */
+    public List<PetDetails> getPets() {
+        return this.pets;
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Running totals of an {@link OwnerCsvImporter} run, with the throughput so far. Rows skipped
+ * because an earlier run had already imported them are counted separately and do not add to the
+ * throughput.
+ */
+class OwnerImportReport {
+
+    private final long startNanos = System.nanoTime();
+
+    private long elapsedNanos = -1;
+
+    private long skipped;
+
+    private long owners;
+
+    private long pets;
+
+    private long imported;
+
+    private long rejected;
+
+    private int chunks;
+
+    void skipped() {
+        this.skipped++;
+    }
+
+    void chunkWritten(int owners, int pets, int imported, int rejected) {
+        this.owners += owners;
+        this.pets += pets;
+        this.imported += imported;
+        this.rejected += rejected;
+        this.chunks++;
+    }
+
+    void finish() {
+        this.elapsedNanos = System.nanoTime() - this.startNanos;
+    }
+
+    /**
+     * @return the rows written or rejected by this run
+     */
+    public long getRows() {
+        return this.imported + this.rejected;
+    }
+
+    public long getSkippedRows() {
+        return this.skipped;
+    }
+
+    public long getImportedRows() {
+        return this.imported;
+    }
+
+    public long getRejectedRows() {
+        return this.rejected;
+    }
+
+    public long getOwners() {
+        return this.owners;
+    }
+
+    public long getPets() {
+        return this.pets;
+    }
+
+    public int getChunks() {
+        return this.chunks;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos());
+    }
+
+    public double getRowsPerSecond() {
+        long elapsed = elapsedNanos();
+        return elapsed == 0 ? 0 : getRows() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    public double getOwnersPerSecond() {
+        long elapsed = elapsedNanos();
+        return elapsed == 0 ? 0 : this.owners * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    private long elapsedNanos() {
+        return this.elapsedNanos < 0 ? System.nanoTime() - this.startNanos : this.elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d rows (%d owners, %d pets, %d rows rejected, %d skipped) in %d ms: %.0f rows/s, %.0f owners/s",
+            getRows(), this.owners, this.pets, this.rejected, this.skipped, getElapsedMillis(), getRowsPerSecond(),
+            getOwnersPerSecond());
+    }
+
+}
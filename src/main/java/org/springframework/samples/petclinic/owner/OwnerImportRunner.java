@@ -0,0 +1,81 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Command line owner import, e.g.
+ * <code>java -jar petclinic.jar --spring.profiles.active=mysql,import --import.file=branch.csv</code>.
+ * An interrupted import resumes from its checkpoint when started again; <code>--import.restart</code>
+ * discards the checkpoint and the rejected rows of earlier runs first. Progress is logged every
+ * {@value #PROGRESS_SECONDS} seconds. The <code>import</code> profile starts no web server, so the
+ * application exits once the file is imported.
+ */
+@Component
+@Profile("import")
+class OwnerImportRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(OwnerImportRunner.class);
+
+    private static final int PROGRESS_SECONDS = 10;
+
+    private final OwnerCsvImporter importer;
+
+    @Autowired
+    public OwnerImportRunner(OwnerCsvImporter importer) {
+        this.importer = importer;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        List<String> files = args.getOptionValues("import.file");
+        if (files == null || files.isEmpty()) {
+            throw new IllegalArgumentException("--import.file is required");
+        }
+        Path file = Paths.get(files.get(0));
+        if (args.containsOption("import.restart")) {
+            Files.deleteIfExists(OwnerCsvImporter.sibling(file, OwnerCsvImporter.CHECKPOINT_SUFFIX));
+            Files.deleteIfExists(OwnerCsvImporter.sibling(file, OwnerCsvImporter.REJECTED_SUFFIX));
+        }
+        long[] nextLog = { System.nanoTime() + TimeUnit.SECONDS.toNanos(PROGRESS_SECONDS) };
+        OwnerImportReport report = this.importer.importOwners(file, progress -> {
+            if (System.nanoTime() - nextLog[0] >= 0) {
+                logger.info("Importing {}: {}", file, progress);
+                nextLog[0] = System.nanoTime() + TimeUnit.SECONDS.toNanos(PROGRESS_SECONDS);
+            }
+        });
+        logger.info("Imported {}: {}", file, report);
+        if (report.getRejectedRows() > 0) {
+            logger.warn("{} rows were rejected, see {}", report.getRejectedRows(),
+                OwnerCsvImporter.sibling(file, OwnerCsvImporter.REJECTED_SUFFIX));
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps the in-memory owner indexes current: every owner passed to
+ * {@link OwnerRepository#save(Owner)} is applied once its transaction has committed, or right away
+ * when the save ran in a transaction of its own.
+ */
+@Aspect
+@Component
+class OwnerIndexAspect {
+
+    private final OwnerSearchIndex searchIndex;
+
+    @Autowired
+    public OwnerIndexAspect(OwnerSearchIndex searchIndex) {
+        this.searchIndex = searchIndex;
+    }
+
+    @AfterReturning("execution(* org.springframework.samples.petclinic.owner.OwnerRepository.save(..)) && args(owner)")
+    public void ownerSaved(Owner owner) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    index(owner);
+                }
+            });
+        } else {
+            index(owner);
+        }
+    }
+
+    private void index(Owner owner) {
+        this.searchIndex.put(owner);
+    }
+
+}
@@ -16,10 +16,14 @@
 package org.springframework.samples.petclinic.owner;
 
 import java.util.Collection;
+import java.util.List;
 
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.repository.query.Param;
+import org.springframework.samples.petclinic.system.SingleFlight;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -45,19 +49,150 @@ public interface OwnerRepository extends Repository<Owner, Integer> {
     Collection<Owner> findByLastName(@Param("lastName") String lastName);
 
     /**
-     * Retrieve an {@link Owner} from the data store by id.
+     * Retrieve the page of {@link OwnerSummary owner summaries} whose last name <i>starts</i> with
+     * the given name and that sort strictly after the given (last name, id) key. Uses keyset
+     * ("seek") pagination, so the cost of a page does not depend on how deep into the result set it
+     * is, and a single aggregate query so that no {@link Owner} or {@link Pet} entities are loaded.
+     * @param lastName Value to search for
+     * @param afterLastName last name of the last owner on the previous page, "" for the first page
+     * @param afterId id of the last owner on the previous page, 0 for the first page
+     * @param limit the maximum number of rows to return
+     * @return the matching owners ordered by last name and id
+     */
+    @Query(value = "SELECT o.id AS id, o.first_name AS firstName, o.last_name AS lastName, o.address AS address, "
+        + "o.city AS city, o.telephone AS telephone, GROUP_CONCAT(p.name ORDER BY p.name SEPARATOR ', ') AS petNames "
+        + "FROM owners o LEFT JOIN pets p ON p.owner_id = o.id "
+        + "WHERE o.last_name LIKE CONCAT(:lastName, '%') "
+        + "AND (o.last_name > :afterLastName OR (o.last_name = :afterLastName AND o.id > :afterId)) "
+        + "GROUP BY o.id, o.first_name, o.last_name, o.address, o.city, o.telephone "
+        + "ORDER BY o.last_name, o.id LIMIT :limit", nativeQuery = true)
+    @Transactional(readOnly = true)
+    List<OwnerSummary> findByLastNameAfter(@Param("lastName") String lastName, @Param("afterLastName") String afterLastName,
+                                           @Param("afterId") int afterId, @Param("limit") int limit);
+
+    /**
+     * Retrieve the page of {@link OwnerSummary owner summaries} whose last name <i>starts</i> with
+     * the given name and that sort strictly before the given (last name, id) key, in
+     * <i>descending</i> order.
+     * @param lastName Value to search for
+     * @param beforeLastName last name of the first owner on the current page
+     * @param beforeId id of the first owner on the current page
+     * @param limit the maximum number of rows to return
+     * @return the matching owners ordered by last name and id, descending
+     */
+    @Query(value = "SELECT o.id AS id, o.first_name AS firstName, o.last_name AS lastName, o.address AS address, "
+        + "o.city AS city, o.telephone AS telephone, GROUP_CONCAT(p.name ORDER BY p.name SEPARATOR ', ') AS petNames "
+        + "FROM owners o LEFT JOIN pets p ON p.owner_id = o.id "
+        + "WHERE o.last_name LIKE CONCAT(:lastName, '%') "
+        + "AND (o.last_name < :beforeLastName OR (o.last_name = :beforeLastName AND o.id < :beforeId)) "
+        + "GROUP BY o.id, o.first_name, o.last_name, o.address, o.city, o.telephone "
+        + "ORDER BY o.last_name DESC, o.id DESC LIMIT :limit", nativeQuery = true)
+    @Transactional(readOnly = true)
+    List<OwnerSummary> findByLastNameBefore(@Param("lastName") String lastName, @Param("beforeLastName") String beforeLastName,
+                                            @Param("beforeId") int beforeId, @Param("limit") int limit);
+
+    /**
+     * Retrieve the {@link OwnerSummary owner summaries} of the given owners, in no particular order.
+     * @param ids the ids of the owners
+     * @return the summaries of the owners that exist
+     */
+    @Query(value = "SELECT o.id AS id, o.first_name AS firstName, o.last_name AS lastName, o.address AS address, "
+        + "o.city AS city, o.telephone AS telephone, GROUP_CONCAT(p.name ORDER BY p.name SEPARATOR ', ') AS petNames "
+        + "FROM owners o LEFT JOIN pets p ON p.owner_id = o.id "
+        + "WHERE o.id IN (:ids) "
+        + "GROUP BY o.id, o.first_name, o.last_name, o.address, o.city, o.telephone", nativeQuery = true)
+    @Transactional(readOnly = true)
+    List<OwnerSummary> findSummariesByIds(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Retrieve the searchable fields of every {@link Owner}, to build the {@link OwnerSearchIndex}.
+     * @return the search fields of all owners
+     */
+    @Query("SELECT new org.springframework.samples.petclinic.owner.OwnerSearchFields(owner.id, owner.firstName, "
+        + "owner.lastName, owner.city, owner.telephone) FROM Owner owner")
+    @Transactional(readOnly = true)
+    List<OwnerSearchFields> findAllSearchFields();
+
+    /**
+     * Retrieve an {@link Owner} from the data store by id, with its pets, their types and their
+     * visits, in one query.
      * @param id the id to search for
      * @return the {@link Owner} if found
+     * @see #findDetailsById(Integer)
      */
-    @Query("SELECT owner FROM Owner owner left join fetch owner.pets WHERE owner.id =:id")
+    @Query("SELECT DISTINCT owner FROM Owner owner WHERE owner.id =:id")
+    @EntityGraph("Owner.withPetsAndVisits")
     @Transactional(readOnly = true)
     Owner findById(@Param("id") Integer id);
 
+    /**
+     * Retrieve what the owner details page shows of an {@link Owner}, loaded with
+     * {@link #findById(Integer)}. Concurrent calls for the same owner share one load and get the
+     * same {@link OwnerDetails}, which is immutable, rather than the same entity.
+     * @param id the id to search for
+     * @return the {@link OwnerDetails} if found
+     */
+    @SingleFlight
+    default OwnerDetails findDetailsById(Integer id) {
+        Owner owner = findById(id);
+        return owner != null ? new OwnerDetails(owner) : null;
+    }
+
+    /**
+     * Retrieve an {@link Owner} from the data store by id, with its pets and their types but not
+     * their visits, as an instance of the caller's own that it may change, for example by adding a
+     * pet.
+     * @param id the id to search for
+     * @return the {@link Owner} if found
+     */
+    @Query("SELECT DISTINCT owner FROM Owner owner WHERE owner.id =:id")
+    @EntityGraph("Owner.withPets")
+    @Transactional(readOnly = true)
+    Owner loadById(@Param("id") Integer id);
+
+    /**
+     * Retrieve an {@link Owner} from the data store by id, without its pets, for the owner form.
+     * @param id the id to search for
+     * @return the {@link Owner} if found
+     */
+    @Query("SELECT owner FROM Owner owner WHERE owner.id =:id")
+    @Transactional(readOnly = true)
+    Owner findWithoutPetsById(@Param("id") Integer id);
+
+    /**
+     * Retrieve the version of an {@link Owner} without loading it.
+     * @param id the id to search for
+     * @return the version, or null if there is no such owner
+     */
+    @Query("SELECT owner.version FROM Owner owner WHERE owner.id = :id")
+    @Transactional(readOnly = true)
+    Integer findVersionById(@Param("id") Integer id);
+
     /**
      * Save an {@link Owner} to the data store, either inserting or updating it.
      * @param owner the {@link Owner} to save
      */
     void save(Owner owner);
 
+    /**
+     * Increment the version of an {@link Owner}, to be called whenever the owner or its pets or
+     * visits change.
+     * @param id the id of the owner
+     */
+    @Modifying
+    @Query("UPDATE Owner owner SET owner.version = owner.version + 1 WHERE owner.id = :id")
+    @Transactional
+    void touch(@Param("id") Integer id);
+
+    /**
+     * Increment the version of every {@link Owner} that owns one of the given pets.
+     * @param petIds the ids of the changed pets
+     */
+    @Modifying
+    @Query("UPDATE Owner owner SET owner.version = owner.version + 1 "
+        + "WHERE owner.id IN (SELECT pet.owner.id FROM Pet pet WHERE pet.id IN :petIds)")
+    @Transactional
+    void touchByPetIds(@Param("petIds") Collection<Integer> petIds);
+
 
 }
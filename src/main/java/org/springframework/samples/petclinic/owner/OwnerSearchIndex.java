@@ -0,0 +1,370 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory search index over all owners, answering the owner search without touching the
+ * database. Each owner is kept as a compact entry: its id, its last name and one lower-cased
+ * search text of <code>"first last\ncity\ntelephone"</code>.
+ * <p>
+ * Every query matches last names by prefix. From {@value #GRAM} characters on it also matches
+ * anywhere in the search text, e.g. part of a city, a telephone number or
+ * <code>"george fr"</code> (a last name prefix is part of the search text, so these results always
+ * include the last name matches). Shorter queries use a skip list ordered by (lower-cased last
+ * name, id). Longer queries walk the shortest of the query's trigram lists, skip lists kept in that
+ * same order, from the cursor, check the owner's current text and stop once the page is full.
+ * Results are in (last name, id) order and paged by {@link OwnerCursor}, like the database search.
+ * <p>
+ * The index is loaded from the <code>owners</code> table in the background once the application
+ * is ready. Until {@link #isReady()} returns true, callers fall back to the database. Saved owners
+ * are applied through {@link #put(Owner)}, under a lock; an unchanged owner costs a lookup, and a
+ * changed one touches only the trigrams it gained or lost, unless its last name moved it. Saves
+ * that arrive during the load are replayed on top of it. Reads take no lock.
+ * <p>
+ * The distinct last names are also kept, with their counts, in a {@link LastNameTrie} for
+ * type-ahead.
+ * <p>
+ * With <code>petclinic.owners.search-index.enabled=false</code>, as in the <code>import</code>
+ * profile, the index is never loaded and saves are not kept: searches use the database and there
+ * are no type-ahead suggestions.
+ */
+@Component
+class OwnerSearchIndex {
+
+    static final int GRAM = 3;
+
+    private static final Logger logger = LoggerFactory.getLogger(OwnerSearchIndex.class);
+
+    private static final Comparator<Entry> ORDER = Comparator.comparing((Entry entry) -> entry.key)
+        .thenComparingInt(entry -> entry.id);
+
+    private final OwnerRepository owners;
+
+    private final boolean enabled;
+
+    private volatile Index index;
+
+    /**
+     * Owners saved before the index is loaded, guarded by <code>this</code>.
+     */
+    private List<Entry> pending;
+
+    @Autowired
+    public OwnerSearchIndex(OwnerRepository owners,
+                            @Value("${petclinic.owners.search-index.enabled:true}") boolean enabled) {
+        this.owners = owners;
+        this.enabled = enabled;
+        this.pending = enabled ? new ArrayList<>() : null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        if (!this.enabled) {
+            return;
+        }
+        Thread loader = new Thread(this::load, "owner-search-index");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    void load() {
+        long start = System.nanoTime();
+        Index loaded = new Index();
+        try {
+            loaded.build(this.owners.findAllSearchFields().stream()
+                .map(owner -> new Entry(owner.getId(), owner.getFirstName(), owner.getLastName(), owner.getCity(),
+                    owner.getTelephone()))
+                .collect(Collectors.toList()));
+        } catch (RuntimeException ex) {
+            logger.error("Could not load the owner search index, searching the database instead", ex);
+            synchronized (this) {
+                this.pending = null;
+            }
+            return;
+        }
+        synchronized (this) {
+            this.pending.forEach(loaded::put);
+            this.pending = null;
+            this.index = loaded;
+        }
+        logger.info("Indexed {} owners in {} ms", loaded.byId.size(), (System.nanoTime() - start) / 1000000);
+    }
+
+    public boolean isReady() {
+        return this.index != null;
+    }
+
+    /**
+     * Add a saved owner to the index, or replace its previous entry.
+     */
+    public synchronized void put(Owner owner) {
+        Entry entry = new Entry(owner.getId(), owner.getFirstName(), owner.getLastName(), owner.getCity(),
+            owner.getTelephone());
+        if (this.index != null) {
+            this.index.put(entry);
+        } else if (this.pending != null) {
+            this.pending.add(entry);
+        }
+    }
+
+    /**
+     * @param query the search text, "" for all owners
+     * @param after the last owner of the previous page, null for the first page
+     * @param limit the maximum number of ids to return
+     * @return the ids of the matching owners that sort after the cursor, in ascending order
+     */
+    public List<Integer> findAfter(String query, OwnerCursor after, int limit) {
+        return find(query, after == null ? null : probe(after), true, limit);
+    }
+
+    /**
+     * @param query the search text, "" for all owners
+     * @param before the first owner of the current page
+     * @param limit the maximum number of ids to return
+     * @return the ids of the matching owners that sort before the cursor, in <i>descending</i> order
+     */
+    public List<Integer> findBefore(String query, OwnerCursor before, int limit) {
+        return find(query, probe(before), false, limit);
+    }
+
+    /**
+     * Complete a last name from memory; empty while the index is loading.
+     * @param prefix the start of the last name, in any case
+     * @param limit the maximum number of suggestions, at most {@value LastNameTrie#TOP}
+     * @return distinct last names with their number of owners, most common first
+     */
+    public List<LastNameTrie.Suggestion> suggestLastNames(String prefix, int limit) {
+        Index current = this.index;
+        if (current == null) {
+            return Collections.emptyList();
+        }
+        return current.lastNames.complete(normalize(prefix), limit);
+    }
+
+    private List<Integer> find(String query, Entry cursor, boolean ascending, int limit) {
+        Index current = this.index;
+        if (current == null) {
+            throw new IllegalStateException("The owner search index is not loaded yet");
+        }
+        String normalized = normalize(query);
+        return normalized.length() < GRAM
+            ? current.findByLastNamePrefix(normalized, cursor, ascending, limit)
+            : current.findBySubstring(normalized, cursor, ascending, limit);
+    }
+
+    private static Entry probe(OwnerCursor cursor) {
+        return new Entry(cursor.getId(), null, cursor.getLastName(), null, null);
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The distinct trigrams of a text, leaving out those that span two fields.
+     */
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            String gram = text.substring(i, i + GRAM);
+            if (gram.indexOf('\n') < 0) {
+                grams.add(gram);
+            }
+        }
+        return grams;
+    }
+
+    private static final class Entry {
+
+        private final int id;
+
+        private final String lastName;
+
+        private final String key;
+
+        private final String text;
+
+        Entry(int id, String firstName, String lastName, String city, String telephone) {
+            this.id = id;
+            this.lastName = lastName;
+            this.key = normalize(lastName);
+            this.text = normalize(firstName) + ' ' + this.key + '\n' + normalize(city) + '\n' + normalize(telephone);
+        }
+
+    }
+
+    /**
+     * The owners containing one trigram, in {@link #ORDER}. An owner whose last name is unchanged
+     * keeps its place, so the entry found here may be an earlier version of the current one.
+     */
+    private static final class Posting {
+
+        private final NavigableSet<Entry> entries = new ConcurrentSkipListSet<>(ORDER);
+
+        /**
+         * The number of entries, which the skip list only counts by walking it; changed under the
+         * index lock.
+         */
+        private volatile int size;
+
+    }
+
+    private static final class Index {
+
+        private final Map<Integer, Entry> byId = new ConcurrentHashMap<>();
+
+        private final NavigableSet<Entry> byLastName = new ConcurrentSkipListSet<>(ORDER);
+
+        private final Map<String, Posting> postings = new ConcurrentHashMap<>();
+
+        private final LastNameTrie lastNames = new LastNameTrie();
+
+        void build(List<Entry> entries) {
+            for (Entry entry : entries) {
+                this.byId.put(entry.id, entry);
+                this.byLastName.add(entry);
+                this.lastNames.addWithoutRefresh(entry.key, entry.lastName);
+                for (String gram : grams(entry.text)) {
+                    add(gram, entry);
+                }
+            }
+            this.lastNames.refreshAll();
+        }
+
+        void put(Entry entry) {
+            Entry previous = this.byId.get(entry.id);
+            if (previous != null && previous.lastName.equals(entry.lastName) && previous.text.equals(entry.text)) {
+                return;
+            }
+            Set<String> grams = grams(entry.text);
+            Set<String> previousGrams = previous != null ? grams(previous.text) : Collections.emptySet();
+            this.byId.put(entry.id, entry);
+            if (previous == null || !previous.key.equals(entry.key)) {
+                if (previous != null) {
+                    // the lists are ordered by last name, so the previous entry leaves all of them
+                    this.byLastName.remove(previous);
+                    previousGrams.forEach(gram -> remove(gram, previous));
+                }
+                this.byLastName.add(entry);
+                grams.forEach(gram -> add(gram, entry));
+            } else {
+                grams.stream().filter(gram -> !previousGrams.contains(gram)).forEach(gram -> add(gram, entry));
+                previousGrams.stream().filter(gram -> !grams.contains(gram)).forEach(gram -> remove(gram, previous));
+            }
+            if (previous == null) {
+                this.lastNames.add(entry.key, entry.lastName);
+            } else if (!previous.key.equals(entry.key) || !previous.lastName.equals(entry.lastName)) {
+                this.lastNames.remove(previous.key);
+                this.lastNames.add(entry.key, entry.lastName);
+            }
+        }
+
+        private void add(String gram, Entry entry) {
+            Posting posting = this.postings.computeIfAbsent(gram, g -> new Posting());
+            if (posting.entries.add(entry)) {
+                posting.size++;
+            }
+        }
+
+        private void remove(String gram, Entry entry) {
+            Posting posting = this.postings.get(gram);
+            if (posting != null && posting.entries.remove(entry) && --posting.size == 0) {
+                this.postings.remove(gram);
+            }
+        }
+
+        List<Integer> findByLastNamePrefix(String prefix, Entry cursor, boolean ascending, int limit) {
+            Entry from = new Entry(Integer.MIN_VALUE, null, prefix, null, null);
+            Entry to = new Entry(Integer.MIN_VALUE, null, prefix + Character.MAX_VALUE, null, null);
+            Entry lower = from;
+            boolean lowerInclusive = true;
+            Entry upper = to;
+            if (cursor != null && ascending && ORDER.compare(cursor, from) >= 0) {
+                lower = cursor;
+                lowerInclusive = false;
+            } else if (cursor != null && !ascending && ORDER.compare(cursor, to) < 0) {
+                upper = cursor;
+            }
+            if (ORDER.compare(lower, upper) >= 0) {
+                return Collections.emptyList();
+            }
+            NavigableSet<Entry> range = this.byLastName.subSet(lower, lowerInclusive, upper, false);
+            List<Integer> ids = new ArrayList<>(limit);
+            for (Entry entry : ascending ? range : range.descendingSet()) {
+                if (ids.size() == limit) {
+                    break;
+                }
+                ids.add(entry.id);
+            }
+            return ids;
+        }
+
+        List<Integer> findBySubstring(String query, Entry cursor, boolean ascending, int limit) {
+            Posting shortest = null;
+            for (String gram : grams(query)) {
+                Posting posting = this.postings.get(gram);
+                if (posting == null) {
+                    return Collections.emptyList();
+                }
+                if (shortest == null || posting.size < shortest.size) {
+                    shortest = posting;
+                }
+            }
+            if (shortest == null) {
+                return Collections.emptyList();
+            }
+            NavigableSet<Entry> entries = shortest.entries;
+            if (cursor != null) {
+                entries = ascending ? entries.tailSet(cursor, false) : entries.headSet(cursor, false);
+            }
+            List<Integer> ids = new ArrayList<>(limit);
+            for (Entry listed : ascending ? entries : entries.descendingSet()) {
+                if (ids.size() == limit) {
+                    break;
+                }
+                // a list may still hold the place of an owner whose last name has just changed
+                Entry entry = this.byId.get(listed.id);
+                if (entry != null && entry.key.equals(listed.key) && entry.text.contains(query)) {
+                    ids.add(entry.id);
+                }
+            }
+            return ids;
+        }
+
+    }
+
+}
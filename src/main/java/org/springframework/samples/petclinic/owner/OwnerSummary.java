@@ -0,0 +1,43 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+/**
+ * Read-only projection of an {@link Owner} for the owners list page: one flat row per owner with
+ * the names of its pets already joined, so that no entities need to be loaded or dirty-checked.
+ */
+public interface OwnerSummary {
+
+    Integer getId();
+
+    String getFirstName();
+
+    String getLastName();
+
+    String getAddress();
+
+    String getCity();
+
+    String getTelephone();
+
+    /**
+     * @return the owner's pet names in alphabetical order, separated by <code>", "</code>, or null
+     * if the owner has no pets; meant to be shown as it is, since pet names may contain spaces and
+     * commas
+     */
+    String getPetNames();
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Bumps {@link Owner#getVersion() the owner's version} on every save of the owner, one of its pets
+ * or one of their visits, so that the owner details page can be revalidated with a single version
+ * lookup. The save and the bump run in one transaction (joining the caller's, if any), so a change
+ * is never committed without a new version for clients holding the old ETag. Inserting a new owner
+ * needs no bump (it starts at version 0), which also keeps cascaded owner/pet/visit inserts free of
+ * interleaved updates so they can be batched.
+ */
+@Aspect
+@Component
+class OwnerVersionAspect {
+
+    private final OwnerRepository owners;
+
+    private final TransactionTemplate transactions;
+
+    @Autowired
+    public OwnerVersionAspect(@Lazy OwnerRepository owners, PlatformTransactionManager transactionManager) {
+        this.owners = owners;
+        this.transactions = new TransactionTemplate(transactionManager);
+    }
+
+    @Around("execution(* org.springframework.samples.petclinic.owner.OwnerRepository.save(..)) && args(owner)")
+    public Object ownerSaved(ProceedingJoinPoint save, Owner owner) throws Throwable {
+        if (owner.isNew()) {
+            return save.proceed();
+        }
+        return saveAndTouch(save, () -> this.owners.touch(owner.getId()));
+    }
+
+    @Around("execution(* org.springframework.samples.petclinic.owner.PetRepository.save(..)) && args(pet)")
+    public Object petSaved(ProceedingJoinPoint save, Pet pet) throws Throwable {
+        return saveAndTouch(save, () -> {
+            if (pet.getOwner() != null && pet.getOwner().getId() != null) {
+                this.owners.touch(pet.getOwner().getId());
+            } else {
+                this.owners.touchByPetIds(Collections.singleton(pet.getId()));
+            }
+        });
+    }
+
+    @Around("execution(* org.springframework.samples.petclinic.visit.VisitRepository.save(..)) && args(visit)")
+    public Object visitSaved(ProceedingJoinPoint save, Visit visit) throws Throwable {
+        return saveAndTouch(save, () -> this.owners.touchByPetIds(Collections.singleton(visit.getPetId())));
+    }
+
+    @Around("execution(* org.springframework.samples.petclinic.visit.VisitRepository.saveAll(..)) && args(visits)")
+    public Object visitsSaved(ProceedingJoinPoint save, Iterable<Visit> visits) throws Throwable {
+        return saveAndTouch(save, () -> {
+            Set<Integer> petIds = StreamSupport.stream(visits.spliterator(), false)
+                .map(Visit::getPetId)
+                .collect(Collectors.toSet());
+            if (!petIds.isEmpty()) {
+                this.owners.touchByPetIds(petIds);
+            }
+        });
+    }
+
+    /**
+     * Runs the save, then the bump, in one transaction; the bump reads ids assigned by the save.
+     */
+    private Object saveAndTouch(ProceedingJoinPoint save, Runnable touch) throws Throwable {
+        try {
+            return this.transactions.execute(status -> {
+                Object result;
+                try {
+                    result = save.proceed();
+                } catch (RuntimeException | Error ex) {
+                    throw ex;
+                } catch (Throwable ex) {
+                    throw new UndeclaredThrowableException(ex);
+                }
+                touch.run();
+                return result;
+            });
+        } catch (UndeclaredThrowableException ex) {
+            throw ex.getUndeclaredThrowable();
+        }
+    }
+
+}
@@ -17,6 +17,7 @@ package org.springframework.samples.petclinic.owner;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -26,16 +27,17 @@ import java.util.Set;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
-import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
 import javax.persistence.OneToMany;
+import javax.persistence.OrderBy;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 
-import org.springframework.beans.support.MutableSortDefinition;
-import org.springframework.beans.support.PropertyComparator;
+import org.hibernate.annotations.BatchSize;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.samples.petclinic.model.NamedEntity;
 import org.springframework.samples.petclinic.visit.Visit;
@@ -49,8 +51,13 @@ import org.springframework.samples.petclinic.visit.Visit;
  */
 @Entity
 @Table(name = "pets")
+@NamedEntityGraph(name = "Pet.withOwner", attributeNodes = {
+    @NamedAttributeNode("type"), @NamedAttributeNode("owner") })
 public class Pet extends NamedEntity {
 
+    private static final Comparator<Visit> VISITS_BY_DATE_DESCENDING =
+        Comparator.comparing(Visit::getDate, Comparator.nullsLast(Comparator.<Date>naturalOrder())).reversed();
+
     @Column(name = "birth_date")
     @Temporal(TemporalType.DATE)
     @DateTimeFormat(pattern = "yyyy-MM-dd")
@@ -64,9 +71,22 @@ public class Pet extends NamedEntity {
     @JoinColumn(name = "owner_id")
     private Owner owner;
 
-    @OneToMany(cascade = CascadeType.ALL, mappedBy = "petId", fetch = FetchType.EAGER)
+    /**
+     * Loaded by the repository methods that need it, through the
+     * <code>Owner.withPetsAndVisits</code> entity graph; otherwise initialized for up to
+     * {@value Owner#BATCH_SIZE} pets per query.
+     */
+    @OneToMany(cascade = CascadeType.ALL, mappedBy = "petId")
+    @OrderBy("date DESC")
+    @BatchSize(size = Owner.BATCH_SIZE)
     private Set<Visit> visits = new LinkedHashSet<>();
 
+    /**
+     * Sorted, read-only view of {@link #visits}, built on first access and discarded whenever a
+     * visit is added.
+     */
+    private transient List<Visit> sortedVisits;
+
     public void setBirthDate(Date birthDate) {
         this.birthDate = birthDate;
     }
@@ -100,17 +120,23 @@ public class Pet extends NamedEntity {
 
     protected void setVisitsInternal(Set<Visit> visits) {
         this.visits = visits;
+        this.sortedVisits = null;
     }
 
     public List<Visit> getVisits() {
-        List<Visit> sortedVisits = new ArrayList<>(getVisitsInternal());
-        PropertyComparator.sort(sortedVisits,
-                new MutableSortDefinition("date", false, false));
-        return Collections.unmodifiableList(sortedVisits);
+        List<Visit> sorted = this.sortedVisits;
+        if (sorted == null) {
+            sorted = new ArrayList<>(getVisitsInternal());
+            sorted.sort(VISITS_BY_DATE_DESCENDING);
+            sorted = Collections.unmodifiableList(sorted);
+            this.sortedVisits = sorted;
+        }
+        return sorted;
     }
 
     public void addVisit(Visit visit) {
         getVisitsInternal().add(visit);
+        this.sortedVisits = null;
         visit.setPetId(this.getId());
     }
 
@@ -38,21 +38,24 @@ class PetController {
     private static final String VIEWS_PETS_CREATE_OR_UPDATE_FORM = "pets/createOrUpdatePetForm";
     private final PetRepository pets;
     private final OwnerRepository owners;
+    private final PetTypeRegistry petTypes;
 
     @Autowired
-    public PetController(PetRepository pets, OwnerRepository owners) {
+    public PetController(PetRepository pets, OwnerRepository owners, PetTypeRegistry petTypes) {
         this.pets = pets;
         this.owners = owners;
+        this.petTypes = petTypes;
     }
 
     @ModelAttribute("types")
     public Collection<PetType> populatePetTypes() {
-        return this.pets.findPetTypes();
+        return this.petTypes.findAll();
     }
 
     @ModelAttribute("owner")
     public Owner findOwner(@PathVariable("ownerId") int ownerId) {
-        return this.owners.findById(ownerId);
+        // the pet forms add the pet to the owner, so it must not be shared with concurrent readers
+        return this.owners.loadById(ownerId);
     }
 
     @InitBinder("owner")
@@ -89,8 +92,10 @@ class PetController {
     }
 
     @GetMapping("/pets/{petId}/edit")
-    public String initUpdateForm(@PathVariable("petId") int petId, ModelMap model) {
+    public String initUpdateForm(Owner owner, @PathVariable("petId") int petId, ModelMap model) {
         Pet pet = this.pets.findById(petId);
+        // the form shows the owner's name from the owner loaded above, not from the pet's association
+        pet.setOwner(owner);
         model.put("pet", pet);
         return VIEWS_PETS_CREATE_OR_UPDATE_FORM;
     }
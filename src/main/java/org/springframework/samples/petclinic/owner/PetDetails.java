@@ -0,0 +1,91 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.samples.petclinic.visit.Visit;
+
+/**
+ * What the owner details and visit pages show of a {@link Pet}, including its visits and the name
+ * of its owner, copied out of the loaded entities.
+ */
+public class PetDetails {
+
+    private final Integer id;
+
+    private final String name;
+
+    private final Date birthDate;
+
+    private final String type;
+
+    private final String ownerName;
+
+    private final List<VisitDetails> visits;
+
+    public PetDetails(Pet pet) {
+        this(pet, pet.getVisits());
+    }
+
+    /**
+     * @param pet the pet, with its type and owner loaded
+     * @param visits the visits to show, latest first, which may be only some of the pet's visits
+     */
+    public PetDetails(Pet pet, List<Visit> visits) {
+        this.id = pet.getId();
+        this.name = pet.getName();
+        this.birthDate = pet.getBirthDate() != null ? new Date(pet.getBirthDate().getTime()) : null;
+        this.type = pet.getType() != null ? pet.getType().getName() : null;
+        Owner owner = pet.getOwner();
+        this.ownerName = owner != null ? owner.getFirstName() + " " + owner.getLastName() : null;
+        this.visits = Collections.unmodifiableList(visits.stream()
+            .filter(visit -> !visit.isNew())
+            .map(VisitDetails::new)
+            .collect(Collectors.toList()));
+    }
+
+    public Integer getId() {
+        return this.id;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public Date getBirthDate() {
+        return this.birthDate != null ? new Date(this.birthDate.getTime()) : null;
+    }
+
+    public String getType() {
+        return this.type;
+    }
+
+    public String getOwnerName() {
+        return this.ownerName;
+    }
+
+    /**
+     * @return the saved visits, latest first
+     */
+    public List<VisitDetails> getVisits() {
+        return this.visits;
+    }
+
+}
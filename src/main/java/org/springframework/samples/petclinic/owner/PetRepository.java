@@ -15,9 +15,12 @@
  */
 package org.springframework.samples.petclinic.owner;
 
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -41,13 +44,31 @@ public interface PetRepository extends Repository<Pet, Integer> {
     List<PetType> findPetTypes();
 
     /**
-     * Retrieve a {@link Pet} from the data store by id.
+     * Retrieve a {@link Pet} from the data store by id, with its type and owner but not its visits.
      * @param id the id to search for
      * @return the {@link Pet} if found
      */
+    @EntityGraph("Pet.withOwner")
     @Transactional(readOnly = true)
     Pet findById(Integer id);
 
+    /**
+     * Check whether a {@link Pet} exists, without loading it.
+     * @param id the id to search for
+     * @return <code>true</code> if the {@link Pet} exists
+     */
+    @Transactional(readOnly = true)
+    boolean existsById(Integer id);
+
+    /**
+     * Retrieve which of the given ids belong to an existing {@link Pet}, in a single query.
+     * @param ids the ids to look up
+     * @return the ids that exist, in no particular order
+     */
+    @Query("SELECT pet.id FROM Pet pet WHERE pet.id IN :ids")
+    @Transactional(readOnly = true)
+    List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
+
     /**
      * Save a {@link Pet} to the data store, either inserting or updating it.
      * @param pet the {@link Pet} to save
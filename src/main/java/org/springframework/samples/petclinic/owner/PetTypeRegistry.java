@@ -0,0 +1,139 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory copy of the <code>types</code> reference table. The pet types are read once through
+ * {@link PetRepository#findPetTypes()} into an immutable snapshot (a name lookup map and the list
+ * ordered by name) and served from memory until {@link #invalidate()} is called, after the
+ * table has been changed outside the application, through <code>DELETE /manage/pettypes</code>.
+ * <p>
+ * Hit and refresh counts are published as the <code>petclinic.pettypes.lookups</code> and
+ * <code>petclinic.pettypes.refreshes</code> metrics.
+ */
+@Component
+public class PetTypeRegistry implements MeterBinder {
+
+    private final PetRepository pets;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong refreshes = new AtomicLong();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public PetTypeRegistry(PetRepository pets) {
+        this.pets = pets;
+    }
+
+    /**
+     * @return all pet types, ordered by name
+     */
+    public List<PetType> findAll() {
+        return getSnapshot().ordered;
+    }
+
+    /**
+     * @param name the exact name of the pet type
+     * @return the pet type, or null if there is none with this name
+     */
+    public PetType findByName(String name) {
+        return getSnapshot().byName.get(name);
+    }
+
+    /**
+     * Discard the loaded pet types; the next lookup reads them from the data store again. A load
+     * already running when this is called does not count as fresh: it is served to its caller
+     * but read again by the next lookup.
+     */
+    public void invalidate() {
+        this.generation.incrementAndGet();
+    }
+
+    public long getHitCount() {
+        return this.hits.get();
+    }
+
+    public long getRefreshCount() {
+        return this.refreshes.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("petclinic.pettypes.lookups", this.hits, AtomicLong::get)
+            .description("Pet type lookups served from memory")
+            .register(registry);
+        FunctionCounter.builder("petclinic.pettypes.refreshes", this.refreshes, AtomicLong::get)
+            .description("Number of times the pet types were loaded from the data store")
+            .register(registry);
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = this.snapshot;
+        if (current != null && current.generation == this.generation.get()) {
+            this.hits.incrementAndGet();
+            return current;
+        }
+        synchronized (this) {
+            current = this.snapshot;
+            long loading = this.generation.get();
+            if (current == null || current.generation != loading) {
+                // tagged with the generation read before the query, so that an invalidate()
+                // racing with it leaves the snapshot stale
+                current = new Snapshot(loading, this.pets.findPetTypes());
+                this.snapshot = current;
+                this.refreshes.incrementAndGet();
+            }
+            return current;
+        }
+    }
+
+    private static final class Snapshot {
+
+        private final long generation;
+
+        private final List<PetType> ordered;
+
+        private final Map<String, PetType> byName;
+
+        private Snapshot(long generation, List<PetType> types) {
+            this.generation = generation;
+            Map<String, PetType> byName = new HashMap<>(types.size() * 2);
+            for (PetType type : types) {
+                byName.put(type.getName(), type);
+            }
+            this.ordered = Collections.unmodifiableList(types);
+            this.byName = Collections.unmodifiableMap(byName);
+        }
+
+    }
+
+}
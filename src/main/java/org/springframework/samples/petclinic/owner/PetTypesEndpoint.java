@@ -0,0 +1,58 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shows the pet types held by the {@link PetTypeRegistry} at <code>/manage/pettypes</code>, and
+ * discards them on <code>DELETE</code> once the <code>types</code> table has been edited.
+ */
+@Component
+@Endpoint(id = "pettypes")
+class PetTypesEndpoint {
+
+    private final PetTypeRegistry registry;
+
+    @Autowired
+    PetTypesEndpoint(PetTypeRegistry registry) {
+        this.registry = registry;
+    }
+
+    @ReadOperation
+    public Map<String, Object> petTypes() {
+        List<String> names = this.registry.findAll().stream().map(PetType::getName).collect(Collectors.toList());
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("types", names);
+        description.put("refreshes", this.registry.getRefreshCount());
+        return description;
+    }
+
+    @DeleteOperation
+    public void invalidate() {
+        this.registry.invalidate();
+    }
+
+}
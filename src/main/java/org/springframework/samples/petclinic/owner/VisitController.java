@@ -15,15 +15,21 @@
  */
 package org.springframework.samples.petclinic.owner;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.samples.petclinic.visit.Visit;
 import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.samples.petclinic.visit.VisitWriteBehind;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import javax.validation.Valid;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -36,55 +42,74 @@ import java.util.Map;
 @Controller
 class VisitController {
 
+    /**
+     * How many of the pet's visits the form lists, latest first.
+     */
+    static final int LATEST_VISITS = 10;
+
     private final VisitRepository visits;
     private final PetRepository pets;
+    private final VisitWriteBehind writeBehind;
 
 
     @Autowired
-    public VisitController(VisitRepository visits, PetRepository pets) {
+    public VisitController(VisitRepository visits, PetRepository pets, ObjectProvider<VisitWriteBehind> writeBehind) {
         this.visits = visits;
         this.pets = pets;
+        this.writeBehind = writeBehind.getIfAvailable();
     }
 
     @InitBinder
     public void setAllowedFields(WebDataBinder dataBinder) {
-        dataBinder.setDisallowedFields("id");
+        dataBinder.setDisallowedFields("id", "petId");
     }
 
     /**
      * Called before each and every @RequestMapping annotated method.
-     * 2 goals:
-     * - Make sure we always have fresh data
-     * - Since we do not use the session scope, make sure that Pet object always has an id
-     * (Even though id is not part of the form fields)
+     * The new visit is attached to the pet by id only, so adding a visit never loads the pet or
+     * its visit history.
      *
      * @param petId
-     * @return Pet
+     * @return Visit
      */
     @ModelAttribute("visit")
-    public Visit loadPetWithVisit(@PathVariable("petId") int petId, Map<String, Object> model) {
-        Pet pet = this.pets.findById(petId);
-        model.put("pet", pet);
+    public Visit newVisit(@PathVariable("petId") int petId) {
         Visit visit = new Visit();
-        pet.addVisit(visit);
+        visit.setPetId(petId);
         return visit;
     }
 
-    // Spring MVC calls method loadPetWithVisit(...) before initNewVisitForm is called
+    // Spring MVC calls method newVisit(...) before initNewVisitForm is called
     @GetMapping("/owners/*/pets/{petId}/visits/new")
     public String initNewVisitForm(@PathVariable("petId") int petId, Map<String, Object> model) {
-        return "pets/createOrUpdateVisitForm";
+        return showVisitForm(petId, model);
     }
 
-    // Spring MVC calls method loadPetWithVisit(...) before processNewVisitForm is called
+    // Spring MVC calls method newVisit(...) before processNewVisitForm is called
     @PostMapping("/owners/{ownerId}/pets/{petId}/visits/new")
-    public String processNewVisitForm(@Valid Visit visit, BindingResult result) {
+    public String processNewVisitForm(@PathVariable("petId") int petId, @Valid Visit visit, BindingResult result,
+                                      Map<String, Object> model) {
         if (result.hasErrors()) {
-            return "pets/createOrUpdateVisitForm";
+            return showVisitForm(petId, model);
+        } else if (!this.pets.existsById(petId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown pet " + petId);
+        } else if (this.writeBehind != null) {
+            this.writeBehind.record(visit);
+            return "redirect:/owners/{ownerId}";
         } else {
             this.visits.save(visit);
             return "redirect:/owners/{ownerId}";
         }
     }
 
+    private String showVisitForm(int petId, Map<String, Object> model) {
+        Pet pet = this.pets.findById(petId);
+        if (pet == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown pet " + petId);
+        }
+        List<Visit> latest = this.visits.findLatestByPetId(petId, PageRequest.of(0, LATEST_VISITS));
+        model.put("pet", new PetDetails(pet, latest));
+        return "pets/createOrUpdateVisitForm";
+    }
+
 }
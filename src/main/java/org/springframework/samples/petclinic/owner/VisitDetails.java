@@ -0,0 +1,44 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.Date;
+
+import org.springframework.samples.petclinic.visit.Visit;
+
+/**
+ * What the owner details and visit pages show of a {@link Visit}.
+ */
+public class VisitDetails {
+
+    private final Date date;
+
+    private final String description;
+
+    public VisitDetails(Visit visit) {
+        this.date = visit.getDate() != null ? new Date(visit.getDate().getTime()) : null;
+        this.description = visit.getDescription();
+    }
+
+    public Date getDate() {
+        return this.date != null ? new Date(this.date.getTime()) : null;
+    }
+
+    public String getDescription() {
+        return this.description;
+    }
+
+}
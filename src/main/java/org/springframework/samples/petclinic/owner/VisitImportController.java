@@ -0,0 +1,51 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * Bulk entry point for practice-management systems that push a day's visits at once. The body is
+ * either a JSON array of visits or one visit per line (<code>application/x-ndjson</code>); see
+ * {@link VisitImporter} for the row format and how rows are stored.
+ */
+@Controller
+class VisitImportController {
+
+    static final String NDJSON_VALUE = "application/x-ndjson";
+
+    private final VisitImporter importer;
+
+    @Autowired
+    public VisitImportController(VisitImporter importer) {
+        this.importer = importer;
+    }
+
+    @PostMapping(value = "/visits/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, NDJSON_VALUE },
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public VisitImportReport importVisits(InputStream body) throws IOException {
+        return this.importer.importVisits(body);
+    }
+
+}
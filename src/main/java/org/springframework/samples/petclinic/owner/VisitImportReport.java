@@ -0,0 +1,123 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+/**
+ * Outcome of a bulk visit import: one {@link Row} per input row, in input order, plus totals and
+ * the measured throughput.
+ */
+class VisitImportReport {
+
+    private final List<Row> results = new ArrayList<>();
+
+    private int succeeded;
+
+    private int failed;
+
+    private long elapsedNanos;
+
+    void created(int row, Integer id) {
+        this.results.add(new Row(row, "created", id, Collections.emptyList()));
+        this.succeeded++;
+    }
+
+    void rejected(int row, List<String> errors) {
+        this.results.add(new Row(row, "rejected", null, errors));
+        this.failed++;
+    }
+
+    void rejected(int row, String error) {
+        rejected(row, Collections.singletonList(error));
+    }
+
+    void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+        this.results.sort(Comparator.comparingInt(Row::getRow));
+    }
+
+    public int getRows() {
+        return this.succeeded + this.failed;
+    }
+
+    public int getSucceeded() {
+        return this.succeeded;
+    }
+
+    public int getFailed() {
+        return this.failed;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.elapsedNanos);
+    }
+
+    public double getRowsPerSecond() {
+        return this.elapsedNanos == 0 ? 0 : getRows() * (double) TimeUnit.SECONDS.toNanos(1) / this.elapsedNanos;
+    }
+
+    public List<Row> getResults() {
+        return this.results;
+    }
+
+    /**
+     * Result of a single input row, numbered from 1.
+     */
+    @JsonInclude(Include.NON_EMPTY)
+    static class Row {
+
+        private final int row;
+
+        private final String status;
+
+        private final Integer id;
+
+        private final List<String> errors;
+
+        Row(int row, String status, Integer id, List<String> errors) {
+            this.row = row;
+            this.status = status;
+            this.id = id;
+            this.errors = errors;
+        }
+
+        public int getRow() {
+            return this.row;
+        }
+
+        public String getStatus() {
+            return this.status;
+        }
+
+        public Integer getId() {
+            return this.id;
+        }
+
+        public List<String> getErrors() {
+            return this.errors;
+        }
+
+    }
+
+}
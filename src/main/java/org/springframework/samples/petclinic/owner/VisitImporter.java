@@ -0,0 +1,197 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Reads visits from a JSON array or a newline-delimited JSON stream and stores them in chunks of
+ * {@value #CHUNK_SIZE}. Rows are parsed one at a time, so the request body is never held in
+ * memory. Each chunk checks its pet ids with a single <code>IN</code> query and saves all its
+ * valid visits through {@link VisitRepository#saveAll} in one transaction. The chunk size is a
+ * multiple of the JDBC batch size.
+ * <p>
+ * Each row is reported separately. A row that does not bind, fails validation or names an
+ * unknown pet is rejected without affecting the others. If a chunk fails to save, all of its rows
+ * are rejected. Malformed JSON ends the import at that row.
+ */
+@Component
+class VisitImporter {
+
+    static final int CHUNK_SIZE = 500;
+
+    private final ObjectMapper mapper;
+
+    private final Validator validator;
+
+    private final PetRepository pets;
+
+    private final VisitRepository visits;
+
+    private final TransactionTemplate transactions;
+
+    @Autowired
+    public VisitImporter(ObjectMapper mapper, Validator validator, PetRepository pets, VisitRepository visits,
+                         PlatformTransactionManager transactionManager) {
+        this.mapper = mapper;
+        this.validator = validator;
+        this.pets = pets;
+        this.visits = visits;
+        this.transactions = new TransactionTemplate(transactionManager);
+    }
+
+    public VisitImportReport importVisits(InputStream body) throws IOException {
+        long start = System.nanoTime();
+        VisitImportReport report = new VisitImportReport();
+        List<PendingVisit> chunk = new ArrayList<>(CHUNK_SIZE);
+        int row = 0;
+        try (MappingIterator<JsonNode> rows = this.mapper.readerFor(JsonNode.class).readValues(body)) {
+            while (true) {
+                JsonNode node;
+                try {
+                    if (!rows.hasNextValue()) {
+                        break;
+                    }
+                    node = rows.nextValue();
+                } catch (JsonProcessingException ex) {
+                    report.rejected(row + 1, "malformed JSON: " + ex.getOriginalMessage());
+                    break;
+                }
+                row++;
+                Visit visit = bind(row, node, report);
+                if (visit != null) {
+                    chunk.add(new PendingVisit(row, visit));
+                    if (chunk.size() == CHUNK_SIZE) {
+                        save(chunk, report);
+                    }
+                }
+            }
+        }
+        save(chunk, report);
+        report.finish(System.nanoTime() - start);
+        return report;
+    }
+
+    private Visit bind(int row, JsonNode node, VisitImportReport report) {
+        VisitRow input;
+        try {
+            input = this.mapper.treeToValue(node, VisitRow.class);
+        } catch (JsonProcessingException ex) {
+            report.rejected(row, ex.getOriginalMessage());
+            return null;
+        }
+        Visit visit = new Visit();
+        visit.setPetId(input.petId);
+        visit.setDescription(input.description);
+        if (input.date != null) {
+            visit.setDate(Date.from(input.date.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        }
+        List<String> errors = this.validator.validate(visit).stream()
+            .map(this::describe)
+            .sorted()
+            .collect(Collectors.toList());
+        if (input.petId == null) {
+            errors.add(0, "petId: must not be null");
+        }
+        if (!errors.isEmpty()) {
+            report.rejected(row, errors);
+            return null;
+        }
+        return visit;
+    }
+
+    private String describe(ConstraintViolation<Visit> violation) {
+        return violation.getPropertyPath() + ": " + violation.getMessage();
+    }
+
+    private void save(List<PendingVisit> chunk, VisitImportReport report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Set<Integer> petIds = chunk.stream().map(pending -> pending.visit.getPetId()).collect(Collectors.toSet());
+        Set<Integer> existing = new HashSet<>(this.pets.findExistingIds(petIds));
+        List<PendingVisit> accepted = new ArrayList<>(chunk.size());
+        for (PendingVisit pending : chunk) {
+            if (existing.contains(pending.visit.getPetId())) {
+                accepted.add(pending);
+            } else {
+                report.rejected(pending.row, "petId: no pet with id " + pending.visit.getPetId());
+            }
+        }
+        if (!accepted.isEmpty()) {
+            List<Visit> toSave = accepted.stream().map(pending -> pending.visit).collect(Collectors.toList());
+            try {
+                this.transactions.execute(status -> this.visits.saveAll(toSave));
+                accepted.forEach(pending -> report.created(pending.row, pending.visit.getId()));
+            } catch (DataAccessException ex) {
+                accepted.forEach(pending -> report.rejected(pending.row, ex.getMostSpecificCause().getMessage()));
+            }
+        }
+        chunk.clear();
+    }
+
+    /**
+     * The accepted JSON shape of a row: <code>{"petId": 7, "date": "2013-01-01", "description": "..."}</code>.
+     * The date defaults to today.
+     */
+    static class VisitRow {
+
+        public Integer petId;
+
+        public LocalDate date;
+
+        public String description;
+
+    }
+
+    private static class PendingVisit {
+
+        private final int row;
+
+        private final Visit visit;
+
+        PendingVisit(int row, Visit visit) {
+            this.row = row;
+            this.visit = visit;
+        }
+
+    }
+
+}
@@ -1,32 +1,67 @@
 package org.springframework.samples.petclinic.system;
 
-import javax.cache.configuration.Configuration;
-import javax.cache.configuration.MutableConfiguration;
+import java.util.Map;
 
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.expiry.ExpiryPolicy;
+import org.ehcache.jsr107.Eh107Configuration;
 import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Profile;
 
 /**
  * Cache could be disabled in unit test.
+ * <p>
+ * Each cache is bounded on the heap, optionally backed by an off-heap tier, and expires entries
+ * according to its {@link CacheProperties.Spec}. Statistics are enabled so that Spring Boot
+ * publishes the <code>cache.gets</code>, <code>cache.puts</code> and
+ * <code>cache.evictions</code> metrics for every cache under <code>/manage/metrics</code>.
  */
 @org.springframework.context.annotation.Configuration
 @EnableCaching
+@EnableConfigurationProperties(CacheProperties.class)
 @Profile("production")
 class CacheConfig {
 
     @Bean
-    public JCacheManagerCustomizer cacheManagerCustomizer() {
+    public JCacheManagerCustomizer cacheManagerCustomizer(CacheProperties properties) {
         return cm -> {
-            Configuration<Object, Object> cacheConfiguration = createCacheConfiguration();
-            cm.createCache("vets", cacheConfiguration);
+            for (Map.Entry<String, CacheProperties.Spec> spec : properties.getSpecs().entrySet()) {
+                cm.createCache(spec.getKey(), createCacheConfiguration(spec.getKey(), spec.getValue()));
+                cm.enableStatistics(spec.getKey(), true);
+            }
         };
     }
 
-    private Configuration<Object, Object> createCacheConfiguration() {
-        // Create a cache using infinite heap. A real application will want to use an
-        // implementation dependent configuration that will better fit your needs
-        return new MutableConfiguration<>().setStatisticsEnabled(true);
+    private javax.cache.configuration.Configuration<Object, Object> createCacheConfiguration(String name,
+                                                                                     CacheProperties.Spec spec) {
+        ResourcePoolsBuilder resources = ResourcePoolsBuilder.heap(spec.getHeapEntries());
+        if (spec.getOffHeapMb() > 0) {
+            resources = resources.offheap(spec.getOffHeapMb(), MemoryUnit.MB);
+        }
+        return Eh107Configuration.fromEhcacheCacheConfiguration(
+            CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class, resources)
+                .withExpiry(createExpiryPolicy(name, spec)));
+    }
+
+    private ExpiryPolicy<Object, Object> createExpiryPolicy(String name, CacheProperties.Spec spec) {
+        if (spec.getTimeToLive() != null && spec.getTimeToIdle() != null) {
+            // each read would push the expiry out again, so an entry read often enough would never
+            // reach its time to live
+            throw new IllegalStateException("The " + name + " cache sets both a time-to-live and a time-to-idle; "
+                + "set only one of them");
+        }
+        if (spec.getTimeToLive() != null) {
+            return ExpiryPolicyBuilder.timeToLiveExpiration(spec.getTimeToLive());
+        }
+        if (spec.getTimeToIdle() != null) {
+            return ExpiryPolicyBuilder.timeToIdleExpiration(spec.getTimeToIdle());
+        }
+        return ExpiryPolicyBuilder.noExpiration();
     }
 }
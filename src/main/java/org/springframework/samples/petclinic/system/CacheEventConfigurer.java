@@ -0,0 +1,173 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CachingConfigurerSupport;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.cache.interceptor.CacheResolver;
+import org.springframework.cache.interceptor.SimpleCacheResolver;
+
+/**
+ * Emits a {@link CacheLookupEvent} for every lookup that <code>@Cacheable</code> makes, such as
+ * those in the JCache <code>vets</code> cache, by resolving the caches through a decorator. The
+ * cache manager itself is left alone, so the cache metrics are bound as before. Unless a flight
+ * recording is running, the only cost of a lookup is checking whether the event is enabled.
+ */
+class CacheEventConfigurer extends CachingConfigurerSupport {
+
+    private final ObjectProvider<CacheManager> cacheManager;
+
+    CacheEventConfigurer(ObjectProvider<CacheManager> cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public CacheResolver cacheResolver() {
+        return new CacheResolver() {
+
+            private volatile CacheResolver target;
+
+            @Override
+            public Collection<? extends Cache> resolveCaches(CacheOperationInvocationContext<?> context) {
+                if (this.target == null) {
+                    this.target = new SimpleCacheResolver(cacheManager.getObject());
+                }
+                return this.target.resolveCaches(context).stream().map(EventCache::new).collect(Collectors.toList());
+            }
+
+        };
+    }
+
+    private static class EventCache implements Cache {
+
+        private final Cache target;
+
+        EventCache(Cache target) {
+            this.target = target;
+        }
+
+        @Override
+        public String getName() {
+            return this.target.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return this.target.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            CacheLookupEvent event = new CacheLookupEvent();
+            if (!event.isEnabled()) {
+                return this.target.get(key);
+            }
+            event.begin();
+            ValueWrapper value = this.target.get(key);
+            commit(event, key, value != null);
+            return value;
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            CacheLookupEvent event = new CacheLookupEvent();
+            if (!event.isEnabled()) {
+                return this.target.get(key, type);
+            }
+            event.begin();
+            T value = this.target.get(key, type);
+            commit(event, key, value != null);
+            return value;
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            CacheLookupEvent event = new CacheLookupEvent();
+            if (!event.isEnabled()) {
+                return this.target.get(key, valueLoader);
+            }
+            event.begin();
+            boolean[] loaded = new boolean[1];
+            T value = this.target.get(key, () -> {
+                loaded[0] = true;
+                return valueLoader.call();
+            });
+            commit(event, key, !loaded[0]);
+            return value;
+        }
+
+        private void commit(CacheLookupEvent event, Object key, boolean hit) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.cache = getName();
+                event.key = String.valueOf(key);
+                event.hit = hit;
+                event.commit();
+            }
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            this.target.put(key, value);
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            return this.target.putIfAbsent(key, value);
+        }
+
+        @Override
+        public void evict(Object key) {
+            this.target.evict(key);
+        }
+
+        @Override
+        public void clear() {
+            this.target.clear();
+        }
+
+    }
+
+    @Name("org.springframework.samples.petclinic.CacheLookup")
+    @Label("Cache Lookup")
+    @Category({ "Pet Clinic", "Cache" })
+    @StackTrace(false)
+    static class CacheLookupEvent extends Event {
+
+        @Label("Cache")
+        String cache;
+
+        @Label("Key")
+        String key;
+
+        @Label("Hit")
+        boolean hit;
+
+    }
+
+}
@@ -0,0 +1,94 @@
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Per-cache settings, bound from <code>petclinic.cache.specs.&lt;cache name&gt;.*</code> in
+ * <code>application.properties</code>. Every cache listed here is created by {@link CacheConfig}.
+ */
+@ConfigurationProperties("petclinic.cache")
+public class CacheProperties {
+
+    private final Map<String, Spec> specs = new LinkedHashMap<>();
+
+    public Map<String, Spec> getSpecs() {
+        return this.specs;
+    }
+
+    public static class Spec {
+
+        /**
+         * Maximum number of entries kept on the heap.
+         */
+        private long heapEntries = 100;
+
+        /**
+         * Size of the off-heap tier in megabytes, 0 to keep the cache on the heap only.
+         */
+        private long offHeapMb;
+
+        /**
+         * How long an entry lives after it was created or updated, unbounded if not set.
+         */
+        private Duration timeToLive;
+
+        /**
+         * How long an entry lives after it was last read, unbounded if not set. Cannot be combined
+         * with a time to live, which the reads would otherwise keep pushing out.
+         */
+        private Duration timeToIdle;
+
+        /**
+         * How long after it was loaded an entry is reloaded in the background, for caches that
+         * have a refresher; shorter than the time to live, so that readers never find the entry
+         * expired. No refresh-ahead if not set.
+         */
+        private Duration refreshAfter;
+
+        public long getHeapEntries() {
+            return this.heapEntries;
+        }
+
+        public void setHeapEntries(long heapEntries) {
+            this.heapEntries = heapEntries;
+        }
+
+        public long getOffHeapMb() {
+            return this.offHeapMb;
+        }
+
+        public void setOffHeapMb(long offHeapMb) {
+            this.offHeapMb = offHeapMb;
+        }
+
+        public Duration getTimeToLive() {
+            return this.timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+
+        public Duration getTimeToIdle() {
+            return this.timeToIdle;
+        }
+
+        public void setTimeToIdle(Duration timeToIdle) {
+            this.timeToIdle = timeToIdle;
+        }
+
+        public Duration getRefreshAfter() {
+            return this.refreshAfter;
+        }
+
+        public void setRefreshAfter(Duration refreshAfter) {
+            this.refreshAfter = refreshAfter;
+        }
+
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+/**
+ * Sheds load before it piles up in Tomcat's and the connection pool's queues: every endpoint group
+ * has a {@link GradientLimit} on its concurrent requests, and a request arriving while its group is
+ * at the limit is turned away at once with <code>503 Service Unavailable</code> and a
+ * <code>Retry-After</code> header.
+ * <p>
+ * The groups are <code>reads</code> (<code>GET</code> of <code>/owners/**</code> and
+ * <code>/vets*</code>) and <code>writes</code> (any other method on <code>/owners/**</code>, such
+ * as editing owners or adding visits), so that a flood of searches cannot starve form submissions.
+ * Anything else, such as static resources, <code>/manage</code> and the bulk import and export
+ * endpoints, is not limited. Each group publishes <code>petclinic.concurrency.limit</code>,
+ * <code>petclinic.concurrency.inflight</code> and <code>petclinic.concurrency.rejections</code>.
+ */
+class ConcurrencyLimitFilter extends OncePerRequestFilter implements Ordered {
+
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    private final Group reads;
+
+    private final Group writes;
+
+    private final String retryAfter;
+
+    ConcurrencyLimitFilter(ConcurrencyLimitProperties properties, MeterRegistry registry) {
+        this.reads = new Group("reads", properties, registry);
+        this.writes = new Group("writes", properties, registry);
+        this.retryAfter = String.valueOf(Math.max(1, properties.getRetryAfter().getSeconds()));
+    }
+
+    /**
+     * Runs after the request metrics filter, so that rejected requests are counted as 503s there.
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 10;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        Group group = group(request);
+        if (group == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        int inflight = group.tryAcquire();
+        if (inflight == 0) {
+            group.rejections.increment();
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, this.retryAfter);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            group.release(start, inflight);
+        }
+    }
+
+    private Group group(HttpServletRequest request) {
+        String path = this.urlPathHelper.getPathWithinApplication(request);
+        boolean owners = path.equals("/owners") || path.startsWith("/owners/");
+        if (!owners && !path.startsWith("/vets")) {
+            return null;
+        }
+        String method = request.getMethod();
+        if (method.equals("GET") || method.equals("HEAD")) {
+            return this.reads;
+        }
+        return owners ? this.writes : null;
+    }
+
+    private static class Group {
+
+        private final GradientLimit limit;
+
+        private final AtomicInteger inflight = new AtomicInteger();
+
+        private final Counter rejections;
+
+        Group(String name, ConcurrencyLimitProperties properties, MeterRegistry registry) {
+            this.limit = new GradientLimit(properties.getInitialLimit(), properties.getMinLimit(),
+                properties.getMaxLimit(), properties.getTolerance(), properties.getSmoothing());
+            Gauge.builder("petclinic.concurrency.limit", this.limit, GradientLimit::getLimit)
+                .description("Concurrent requests currently allowed")
+                .tag("group", name)
+                .register(registry);
+            Gauge.builder("petclinic.concurrency.inflight", this.inflight, AtomicInteger::get)
+                .description("Requests currently being served")
+                .tag("group", name)
+                .register(registry);
+            this.rejections = Counter.builder("petclinic.concurrency.rejections")
+                .description("Requests turned away because the limit was reached")
+                .tag("group", name)
+                .register(registry);
+        }
+
+        /**
+         * @return the number of requests in flight including this one, or 0 if it is over the limit
+         */
+        int tryAcquire() {
+            while (true) {
+                int current = this.inflight.get();
+                if (current >= this.limit.getLimit()) {
+                    return 0;
+                }
+                if (this.inflight.compareAndSet(current, current + 1)) {
+                    return current + 1;
+                }
+            }
+        }
+
+        void release(long start, int inflight) {
+            long now = System.nanoTime();
+            this.inflight.decrementAndGet();
+            this.limit.sample(now, now - start, inflight);
+        }
+
+    }
+
+}
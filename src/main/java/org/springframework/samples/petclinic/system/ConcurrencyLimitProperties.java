@@ -0,0 +1,115 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the adaptive concurrency limits, see {@link ConcurrencyLimitFilter}. Each endpoint
+ * group gets a limit of its own with these settings.
+ */
+@ConfigurationProperties("petclinic.concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    /**
+     * Whether requests are limited at all.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Concurrent requests per group before the first response times are known.
+     */
+    private int initialLimit = 20;
+
+    private int minLimit = 4;
+
+    private int maxLimit = 200;
+
+    /**
+     * How much slower than usual requests may get before the limit comes down, 1.5 meaning 50%
+     * slower.
+     */
+    private double tolerance = 1.5;
+
+    /**
+     * Weight of each new estimate in the limit, between 0 and 1.
+     */
+    private double smoothing = 0.2;
+
+    /**
+     * Sent as <code>Retry-After</code> with rejected requests.
+     */
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getInitialLimit() {
+        return this.initialLimit;
+    }
+
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    public int getMinLimit() {
+        return this.minLimit;
+    }
+
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    public int getMaxLimit() {
+        return this.maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    public double getTolerance() {
+        return this.tolerance;
+    }
+
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    public double getSmoothing() {
+        return this.smoothing;
+    }
+
+    public void setSmoothing(double smoothing) {
+        this.smoothing = smoothing;
+    }
+
+    public Duration getRetryAfter() {
+        return this.retryAfter;
+    }
+
+    public void setRetryAfter(Duration retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+
+}
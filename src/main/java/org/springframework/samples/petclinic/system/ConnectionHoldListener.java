@@ -0,0 +1,43 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Reports the JDBC connections each Hibernate session takes from the pool, and when it gives them
+ * back, to the {@link SqlStatistics} running on the current thread. Registered for every session
+ * with <code>hibernate.session.events.auto</code>, so Hibernate creates one per session.
+ */
+public class ConnectionHoldListener extends BaseSessionEventListener {
+
+    @Override
+    public void jdbcConnectionAcquisitionEnd() {
+        SqlStatistics statistics = SqlStatistics.current();
+        if (statistics != null) {
+            statistics.connectionAcquired(System.nanoTime());
+        }
+    }
+
+    @Override
+    public void jdbcConnectionReleaseEnd() {
+        SqlStatistics statistics = SqlStatistics.current();
+        if (statistics != null) {
+            statistics.connectionReleased(System.nanoTime());
+        }
+    }
+
+}
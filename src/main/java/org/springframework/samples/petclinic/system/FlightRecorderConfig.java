@@ -0,0 +1,57 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Java Flight Recorder support: custom events around repository invocations, cache lookups and
+ * Thymeleaf rendering, and the <code>/manage/jfr</code> endpoint to take a recording with them.
+ * Events cost next to nothing while no recording is running, so they stay on all the time.
+ * <p>
+ * Needs the <code>jdk.jfr</code> API of Java 11, or of Java 8 from update 262 on; without it none
+ * of these beans are created.
+ */
+@Configuration
+@ConditionalOnClass(name = "jdk.jfr.FlightRecorder")
+class FlightRecorderConfig {
+
+    @Bean
+    public RepositoryEventAspect repositoryEventAspect() {
+        return new RepositoryEventAspect();
+    }
+
+    @Bean
+    public static CacheEventConfigurer cacheEventConfigurer(ObjectProvider<CacheManager> cacheManager) {
+        return new CacheEventConfigurer(cacheManager);
+    }
+
+    @Bean
+    @ConditionalOnClass(name = "org.thymeleaf.spring5.view.ThymeleafViewResolver")
+    public static TemplateRenderingEventPostProcessor templateRenderingEventPostProcessor() {
+        return new TemplateRenderingEventPostProcessor();
+    }
+
+    @Bean
+    public FlightRecorderEndpoint flightRecorderEndpoint() {
+        return new FlightRecorderEndpoint();
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+
+/**
+ * Controls a Java Flight Recorder recording at <code>/manage/jfr</code>:
+ * <ul>
+ * <li><code>POST</code> starts one with the JDK's <code>profile</code> settings, or those named by
+ * a <code>settings</code> property in the JSON body (<code>default</code> records less);</li>
+ * <li><code>GET</code> describes it;</li>
+ * <li><code>DELETE</code> stops it and returns the <code>.jfr</code> file, to be opened in JDK
+ * Mission Control.</li>
+ * </ul>
+ * Besides the JDK's own events the recording contains the repository invocations, cache lookups
+ * and template renderings of the application. A forgotten recording keeps only the last
+ * {@link #MAX_AGE} of data.
+ */
+@WebEndpoint(id = "jfr")
+class FlightRecorderEndpoint {
+
+    static final Duration MAX_AGE = Duration.ofHours(1);
+
+    private Recording recording;
+
+    @ReadOperation
+    public synchronized WebEndpointResponse<Map<String, Object>> recording() {
+        if (this.recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        return new WebEndpointResponse<>(describe(this.recording));
+    }
+
+    @WriteOperation
+    public synchronized WebEndpointResponse<Map<String, Object>> start(@Nullable String settings)
+        throws IOException, ParseException {
+        if (!FlightRecorder.isAvailable()) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE);
+        }
+        if (this.recording == null) {
+            Configuration configuration;
+            try {
+                configuration = Configuration.getConfiguration(settings == null ? "profile" : settings);
+            } catch (NoSuchFileException ex) {
+                return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+            }
+            Recording recording = new Recording(configuration);
+            recording.setName("petclinic");
+            recording.setToDisk(true);
+            recording.setMaxAge(MAX_AGE);
+            recording.start();
+            this.recording = recording;
+        }
+        return new WebEndpointResponse<>(describe(this.recording));
+    }
+
+    @DeleteOperation
+    public synchronized WebEndpointResponse<Resource> stop() throws IOException {
+        if (this.recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        Recording recording = this.recording;
+        this.recording = null;
+        recording.stop();
+        InputStream data = recording.getStream(null, null);
+        if (data == null) {
+            recording.close();
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        // the recording's files are removed once the response has been written
+        return new WebEndpointResponse<>(new InputStreamResource(new FilterInputStream(data) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    recording.close();
+                }
+            }
+        }));
+    }
+
+    private static Map<String, Object> describe(Recording recording) {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("name", recording.getName());
+        description.put("state", recording.getState());
+        description.put("startTime", recording.getStartTime());
+        description.put("duration", Duration.between(recording.getStartTime(), Instant.now()).toString());
+        description.put("size", recording.getSize());
+        description.put("maxAge", recording.getMaxAge().toString());
+        return description;
+    }
+
+}
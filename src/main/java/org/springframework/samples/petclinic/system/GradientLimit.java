@@ -0,0 +1,122 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+/**
+ * A gradient concurrency limit in the spirit of TCP Vegas: as long as requests take about as long
+ * as they usually do, the limit creeps up; once they take longer, requests are queueing somewhere
+ * (Tomcat threads, the JDBC pool, the database) and the limit is cut in proportion.
+ * <p>
+ * Response times are averaged over windows of at least {@link #WINDOW_SAMPLES} requests and
+ * {@link #WINDOW_NANOS}. Each window's average (the short RTT) is compared with a long-term
+ * exponential average (the long RTT) to compute
+ * <code>gradient = clamp(tolerance * longRtt / shortRtt, 0.5, 1)</code>; the new limit is
+ * <code>limit * gradient + queueSize</code>, smoothed and kept between the minimum and maximum.
+ * The limit does not grow while less than half of it is in use, and the long RTT is pulled down
+ * quickly after an overload so that the limit can recover.
+ */
+class GradientLimit {
+
+    static final int WINDOW_SAMPLES = 10;
+
+    static final long WINDOW_NANOS = 100_000_000L;
+
+    private static final int LONG_RTT_WINDOWS = 600;
+
+    private static final int WARMUP_WINDOWS = 10;
+
+    private static final double QUEUE_SIZE = 4;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double tolerance;
+
+    private final double smoothing;
+
+    private volatile int limit;
+
+    private double estimatedLimit;
+
+    private double longRtt;
+
+    private int windows;
+
+    private long windowStart;
+
+    private long windowRttSum;
+
+    private int windowSamples;
+
+    private int windowMaxInflight;
+
+    GradientLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, double smoothing) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.limit = (int) this.estimatedLimit;
+    }
+
+    int getLimit() {
+        return this.limit;
+    }
+
+    /**
+     * Records a completed request.
+     * @param now the current {@link System#nanoTime()}
+     * @param rtt how long the request took, in nanoseconds
+     * @param inflight how many requests were in flight when it started, itself included
+     */
+    synchronized void sample(long now, long rtt, int inflight) {
+        if (this.windowSamples == 0) {
+            this.windowStart = now;
+        }
+        this.windowRttSum += rtt;
+        this.windowSamples++;
+        this.windowMaxInflight = Math.max(this.windowMaxInflight, inflight);
+        if (this.windowSamples >= WINDOW_SAMPLES && now - this.windowStart >= WINDOW_NANOS) {
+            update((double) this.windowRttSum / this.windowSamples, this.windowMaxInflight);
+            this.windowRttSum = 0;
+            this.windowSamples = 0;
+            this.windowMaxInflight = 0;
+        }
+    }
+
+    private void update(double shortRtt, int inflight) {
+        this.windows++;
+        if (this.windows <= WARMUP_WINDOWS) {
+            this.longRtt += (shortRtt - this.longRtt) / this.windows;
+        } else {
+            this.longRtt += (shortRtt - this.longRtt) * 2 / (LONG_RTT_WINDOWS + 1);
+        }
+        if (this.longRtt / shortRtt > 2) {
+            // latency is back to normal after a prolonged overload, don't wait for the average to catch up
+            this.longRtt *= 0.95;
+        }
+        if (inflight < this.estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, this.tolerance * this.longRtt / shortRtt));
+        double newLimit = this.estimatedLimit * gradient + QUEUE_SIZE;
+        newLimit = this.estimatedLimit * (1 - this.smoothing) + newLimit * this.smoothing;
+        this.estimatedLimit = Math.max(this.minLimit, Math.min(this.maxLimit, newLimit));
+        this.limit = (int) this.estimatedLimit;
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.Map;
+
+import javax.persistence.EntityManagerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jpa.HibernateMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.metrics.MeterRegistryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Tags every meter with <code>application=petclinic</code> and publishes the Hibernate statistics
+ * (<code>hibernate.query.executions</code>, <code>hibernate.entities.loads</code>,
+ * <code>hibernate.collections.fetches</code>, <code>hibernate.flushes</code> and friends) under
+ * <code>/manage/metrics</code>. Spring Boot already binds the Hikari pool (<code>hikaricp.*</code>)
+ * and, in the production profile, the JCache statistics (<code>cache.*</code>); repository timings
+ * come from {@link RepositoryMetricsAspect}.
+ * <p>
+ * The entity manager factories are bound once they exist rather than through a
+ * <code>MeterBinder</code> bean, which the registry would look up while the data source is still
+ * being created. The statistics only report values while
+ * <code>hibernate.generate_statistics</code> is enabled.
+ */
+@Configuration
+class MetricsConfig {
+
+    private final MeterRegistry registry;
+
+    @Autowired
+    public MetricsConfig(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Bean
+    public static MeterRegistryCustomizer<MeterRegistry> commonTags() {
+        return registry -> registry.config().commonTags("application", "petclinic");
+    }
+
+    @Autowired
+    public void bindEntityManagerFactories(Map<String, EntityManagerFactory> entityManagerFactories) {
+        entityManagerFactories.forEach((name, entityManagerFactory) ->
+            new HibernateMetrics(entityManagerFactory, name, Tags.empty()).bindTo(this.registry));
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Slice;
+
+/**
+ * Emits a {@link RepositoryEvent} for every Spring Data repository method while a flight recording
+ * is running; otherwise the only cost is checking whether the event is enabled. The aspect runs
+ * just inside {@link RepositoryMetricsAspect}, so the timer includes the cost of the event.
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+class RepositoryEventAspect {
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        RepositoryEvent event = new RepositoryEvent();
+        if (!event.isEnabled()) {
+            return joinPoint.proceed();
+        }
+        event.begin();
+        Object result = null;
+        try {
+            result = joinPoint.proceed();
+            return result;
+        } catch (Throwable ex) {
+            event.exception = ex.getClass().getName();
+            throw ex;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.repository = joinPoint.getSignature().getDeclaringType().getSimpleName();
+                event.method = joinPoint.getSignature().getName();
+                event.rows = rows(result);
+                event.commit();
+            }
+        }
+    }
+
+    private static int rows(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Map) {
+            return ((Map<?, ?>) result).size();
+        }
+        if (result instanceof Slice) {
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        return result == null ? 0 : 1;
+    }
+
+    @Name("org.springframework.samples.petclinic.RepositoryInvocation")
+    @Label("Repository Invocation")
+    @Category({ "Pet Clinic", "Data Access" })
+    @StackTrace(false)
+    static class RepositoryEvent extends Event {
+
+        @Label("Repository")
+        String repository;
+
+        @Label("Method")
+        String method;
+
+        @Label("Rows")
+        int rows;
+
+        @Label("Exception")
+        String exception;
+
+    }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a repository read whose concurrent identical calls (same method, equal arguments) may share
+ * a single load: the first caller runs the query and the others wait for its result instead of
+ * issuing the same SQL again, see {@link SingleFlightAspect}.
+ * <p>
+ * Callers get the <i>same</i> result instance, so only annotate methods whose result is fully
+ * initialized (no lazy associations left) and whose callers treat it as read-only. Prefer an
+ * immutable value built from the entities over the entities themselves, which belong to the
+ * persistence context that loaded them.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface SingleFlight {
+
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Lets concurrent identical calls of a {@link SingleFlight} repository method share one load: the
+ * first caller (the leader) runs the query and publishes its result through a
+ * {@link CompletableFuture}, every caller arriving with the same method and equal arguments while
+ * it runs waits for that future instead. Nothing is kept once the load completes, so this is not a
+ * cache; it only collapses a stampede such as a cold <code>vets</code> cache into one query.
+ * <p>
+ * Only calls made outside of a transaction are coalesced, since a transaction may see its own
+ * uncommitted changes, and only when every argument is an immutable value (strings, numbers,
+ * booleans, characters, enums or <code>null</code>), so that keys cannot change while in flight.
+ * A leader's exception is rethrown to its followers. A follower that waits longer than the timeout
+ * gives up on the leader and runs the query itself; the stuck load is forgotten, so later callers
+ * start a new one.
+ * <p>
+ * Publishes <code>petclinic.repository.coalesced</code>, the loads saved by joining another
+ * caller's, and <code>petclinic.repository.coalesced.timeouts</code>, tagged with the repository
+ * and method. The aspect runs inside the metrics and flight recorder aspects, which therefore see
+ * every caller with the latency it actually saw, and ahead of any caching advice.
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+class SingleFlightAspect {
+
+    static final String METRIC_NAME = "petclinic.repository.coalesced";
+
+    static final String TIMEOUTS_METRIC_NAME = "petclinic.repository.coalesced.timeouts";
+
+    private final ConcurrentMap<Method, Boolean> singleFlight = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Key, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+
+    private final long timeoutNanos;
+
+    private final MeterRegistry registry;
+
+    public SingleFlightAspect(Duration timeout, MeterRegistry registry) {
+        this.timeoutNanos = timeout.toNanos();
+        this.registry = registry;
+    }
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object coalesce(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Object[] args = joinPoint.getArgs();
+        if (!isSingleFlight(method) || TransactionSynchronizationManager.isActualTransactionActive()
+            || !Arrays.stream(args).allMatch(SingleFlightAspect::isValue)) {
+            return joinPoint.proceed();
+        }
+        Key key = new Key(method, args);
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> leader = this.flights.putIfAbsent(key, flight);
+        if (leader == null) {
+            return lead(joinPoint, key, flight);
+        }
+        return follow(joinPoint, key, leader);
+    }
+
+    /**
+     * Number of loads currently in flight.
+     */
+    int getFlights() {
+        return this.flights.size();
+    }
+
+    private Object lead(ProceedingJoinPoint joinPoint, Key key, CompletableFuture<Object> flight) throws Throwable {
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable ex) {
+            this.flights.remove(key, flight);
+            flight.completeExceptionally(ex);
+            throw ex;
+        }
+        this.flights.remove(key, flight);
+        flight.complete(result);
+        return result;
+    }
+
+    private Object follow(ProceedingJoinPoint joinPoint, Key key, CompletableFuture<Object> leader) throws Throwable {
+        try {
+            Object result = leader.get(this.timeoutNanos, TimeUnit.NANOSECONDS);
+            count(METRIC_NAME, joinPoint);
+            return result;
+        } catch (ExecutionException ex) {
+            count(METRIC_NAME, joinPoint);
+            throw ex.getCause();
+        } catch (TimeoutException ex) {
+            this.flights.remove(key, leader);
+            count(TIMEOUTS_METRIC_NAME, joinPoint);
+            return joinPoint.proceed();
+        } catch (InterruptedException ex) {
+            // the query itself reacts to the interrupt as it would have without coalescing
+            Thread.currentThread().interrupt();
+            return joinPoint.proceed();
+        }
+    }
+
+    private boolean isSingleFlight(Method method) {
+        return this.singleFlight.computeIfAbsent(method,
+            candidate -> AnnotatedElementUtils.hasAnnotation(candidate, SingleFlight.class));
+    }
+
+    private void count(String name, ProceedingJoinPoint joinPoint) {
+        this.registry.counter(name,
+            "repository", joinPoint.getSignature().getDeclaringType().getSimpleName(),
+            "method", joinPoint.getSignature().getName()).increment();
+    }
+
+    private static boolean isValue(Object arg) {
+        return arg == null || arg instanceof String || arg instanceof Integer || arg instanceof Long
+            || arg instanceof Short || arg instanceof Byte || arg instanceof Double || arg instanceof Float
+            || arg instanceof Boolean || arg instanceof Character || arg instanceof Enum;
+    }
+
+    private static final class Key {
+
+        private final Method method;
+
+        private final Object[] args;
+
+        private final int hash;
+
+        Key(Method method, Object[] args) {
+            this.method = method;
+            this.args = args.clone();
+            this.hash = 31 * method.hashCode() + Arrays.hashCode(this.args);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return this.method.equals(key.method) && Arrays.equals(this.args, key.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+    }
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Creates the {@link SingleFlightAspect} unless <code>petclinic.single-flight.enabled</code> is
+ * <code>false</code>.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "petclinic.single-flight", name = "enabled", matchIfMissing = true)
+@EnableConfigurationProperties(SingleFlightProperties.class)
+class SingleFlightConfig {
+
+    @Bean
+    public SingleFlightAspect singleFlightAspect(SingleFlightProperties properties, MeterRegistry registry) {
+        return new SingleFlightAspect(properties.getTimeout(), registry);
+    }
+
+}
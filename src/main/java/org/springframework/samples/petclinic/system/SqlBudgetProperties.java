@@ -0,0 +1,68 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * How much SQL a single request may issue before {@link SqlStatisticsFilter} logs it.
+ */
+@ConfigurationProperties("petclinic.sql.budget")
+public class SqlBudgetProperties {
+
+    /**
+     * Maximum number of statements per request.
+     */
+    private int statements = 30;
+
+    /**
+     * Maximum number of times a request may execute the same statement, which catches N+1
+     * selects well before they exhaust the statement budget.
+     */
+    private int repeats = 10;
+
+    /**
+     * Maximum time per request spent executing statements and fetching rows.
+     */
+    private Duration time = Duration.ofMillis(200);
+
+    public int getStatements() {
+        return this.statements;
+    }
+
+    public void setStatements(int statements) {
+        this.statements = statements;
+    }
+
+    public int getRepeats() {
+        return this.repeats;
+    }
+
+    public void setRepeats(int repeats) {
+        this.repeats = repeats;
+    }
+
+    public Duration getTime() {
+        return this.time;
+    }
+
+    public void setTime(Duration time) {
+        this.time = time;
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the SQL statements a thread executes, the rows it reads from their result sets and the
+ * time spent in the driver, for as long as it is {@link #start() started}. Every HTTP request is
+ * measured this way by {@link SqlStatisticsFilter}, which leaves the result in the
+ * {@link #REQUEST_ATTRIBUTE} request attribute; tests can also measure a block of code directly:
+ *
+ * <pre class="code">
+ * SqlStatistics sql = SqlStatistics.start();
+ * try {
+ *     owners.findById(1);
+ * } finally {
+ *     sql.stop();
+ * }
+ * assertThat(sql.getStatements()).isEqualTo(1);
+ * </pre>
+ *
+ * Statements are only counted when they go through the data source set up by
+ * {@link SqlStatisticsConfig}. Connections are counted, together with the time they are held, when
+ * Hibernate reports them to {@link ConnectionHoldListener}. Instances are confined to the thread
+ * that started them.
+ */
+public final class SqlStatistics {
+
+    public static final String REQUEST_ATTRIBUTE = SqlStatistics.class.getName();
+
+    private static final ThreadLocal<SqlStatistics> CURRENT = new ThreadLocal<>();
+
+    private final SqlStatistics previous;
+
+    private final Map<String, Integer> executions = new HashMap<>();
+
+    private int statements;
+
+    private long rows;
+
+    private long nanos;
+
+    private String mostRepeatedStatement;
+
+    private int maxRepeats;
+
+    private int connections;
+
+    private int held;
+
+    private long heldSince;
+
+    private long holdNanos;
+
+    private SqlStatistics(SqlStatistics previous) {
+        this.previous = previous;
+    }
+
+    /**
+     * Starts counting the statements of the current thread, until {@link #stop()}; a measurement
+     * already running is suspended in the meantime.
+     */
+    public static SqlStatistics start() {
+        SqlStatistics statistics = new SqlStatistics(CURRENT.get());
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    /**
+     * The measurement running on the current thread, or <code>null</code>.
+     */
+    static SqlStatistics current() {
+        return CURRENT.get();
+    }
+
+    public void stop() {
+        if (this.held > 0) {
+            // a connection outlives the measurement, count it as held until now
+            this.holdNanos += System.nanoTime() - this.heldSince;
+            this.held = 0;
+        }
+        if (CURRENT.get() == this) {
+            if (this.previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(this.previous);
+            }
+        }
+    }
+
+    void executed(String sql, long nanos) {
+        this.statements++;
+        this.nanos += nanos;
+        int repeats = this.executions.merge(sql, 1, Integer::sum);
+        if (repeats > this.maxRepeats) {
+            this.maxRepeats = repeats;
+            this.mostRepeatedStatement = sql;
+        }
+    }
+
+    void fetched(boolean row, long nanos) {
+        if (row) {
+            this.rows++;
+        }
+        this.nanos += nanos;
+    }
+
+    void connectionAcquired(long now) {
+        this.connections++;
+        if (this.held++ == 0) {
+            this.heldSince = now;
+        }
+    }
+
+    void connectionReleased(long now) {
+        if (this.held > 0 && --this.held == 0) {
+            this.holdNanos += now - this.heldSince;
+        }
+    }
+
+    /**
+     * Number of statements executed; a JDBC batch counts as one.
+     */
+    public int getStatements() {
+        return this.statements;
+    }
+
+    /**
+     * Number of rows read from result sets.
+     */
+    public long getRows() {
+        return this.rows;
+    }
+
+    /**
+     * Time spent executing statements and fetching their rows.
+     */
+    public long getTime(TimeUnit unit) {
+        return unit.convert(this.nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * How often the most frequent statement was executed, the usual sign of an N+1 select.
+     */
+    public int getMaxRepeats() {
+        return this.maxRepeats;
+    }
+
+    public String getMostRepeatedStatement() {
+        return this.mostRepeatedStatement;
+    }
+
+    /**
+     * Number of JDBC connections the persistence context acquired from the pool.
+     */
+    public int getConnections() {
+        return this.connections;
+    }
+
+    /**
+     * Time during which at least one of those connections was checked out of the pool.
+     */
+    public long getConnectionHoldTime(TimeUnit unit) {
+        return unit.convert(this.holdNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d statements, %d rows, %.3f ms, connection held %.3f ms", this.statements,
+            this.rows, this.nanos / 1e6, this.holdNanos / 1e6);
+    }
+
+}
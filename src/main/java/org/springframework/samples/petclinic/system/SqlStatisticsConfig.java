@@ -0,0 +1,92 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.util.DriverDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+/**
+ * Counts the SQL of every request, see {@link SqlStatistics}. The counts are logged for requests
+ * over budget and, outside the production profile, returned as response headers.
+ * <p>
+ * The time each request holds a pooled connection is reported by Hibernate to a
+ * {@link ConnectionHoldListener}.
+ * <p>
+ * A Hikari pool keeps its bean, so that its metrics stay bound, and opens its physical
+ * connections through a {@link SqlStatisticsDataSource}; any other data source is wrapped as a
+ * whole.
+ */
+@Configuration
+@EnableConfigurationProperties(SqlBudgetProperties.class)
+class SqlStatisticsConfig {
+
+    @Bean
+    public static BeanPostProcessor sqlStatisticsDataSourcePostProcessor() {
+        return new DataSourcePostProcessor();
+    }
+
+    @Bean
+    public SqlStatisticsFilter sqlStatisticsFilter(SqlBudgetProperties budget, Environment environment,
+                                                   MeterRegistry registry) {
+        return new SqlStatisticsFilter(budget, !environment.acceptsProfiles("production"), registry);
+    }
+
+    /**
+     * Runs before the data source initializer, which opens the first connections.
+     */
+    private static class DataSourcePostProcessor implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessBeforeInitialization(Object bean, String beanName) {
+            if (bean instanceof HikariDataSource) {
+                HikariDataSource pool = (HikariDataSource) bean;
+                if (pool.getDataSource() == null) {
+                    pool.setDataSource(new SqlStatisticsDataSource(new DriverDataSource(pool.getJdbcUrl(),
+                        pool.getDriverClassName(), pool.getDataSourceProperties(), pool.getUsername(),
+                        pool.getPassword())));
+                } else if (!(pool.getDataSource() instanceof SqlStatisticsDataSource)) {
+                    pool.setDataSource(new SqlStatisticsDataSource(pool.getDataSource()));
+                }
+            }
+            return bean;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource && !(bean instanceof HikariDataSource)
+                && !(bean instanceof SqlStatisticsDataSource)) {
+                return new SqlStatisticsDataSource((DataSource) bean);
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+
+    }
+
+}
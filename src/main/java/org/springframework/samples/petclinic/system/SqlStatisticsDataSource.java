@@ -0,0 +1,139 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Reports the statements executed on its connections to the {@link SqlStatistics} of the calling
+ * thread. A statement created while no measurement is running is handed out unwrapped, so
+ * background work such as imports pays nothing for the accounting.
+ */
+class SqlStatisticsDataSource extends DelegatingDataSource {
+
+    private static final ClassLoader CLASS_LOADER = SqlStatisticsDataSource.class.getClassLoader();
+
+    SqlStatisticsDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connection(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connection(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private static Connection connection(Connection target) {
+        return proxy(Connection.class, (proxy, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (!(result instanceof Statement) || SqlStatistics.current() == null) {
+                return result;
+            }
+            if (result instanceof CallableStatement) {
+                return statement(CallableStatement.class, (Statement) result, (String) args[0]);
+            }
+            if (result instanceof PreparedStatement) {
+                return statement(PreparedStatement.class, (Statement) result, (String) args[0]);
+            }
+            return statement(Statement.class, (Statement) result, null);
+        });
+    }
+
+    private static <T extends Statement> T statement(Class<T> type, Statement target, String preparedSql) {
+        return proxy(type, (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                long start = System.nanoTime();
+                try {
+                    return resultSet(invoke(target, method, args));
+                } finally {
+                    record(sql(name, preparedSql, args), System.nanoTime() - start);
+                }
+            }
+            if (name.equals("getResultSet") || name.equals("getGeneratedKeys")) {
+                return resultSet(invoke(target, method, args));
+            }
+            return invoke(target, method, args);
+        });
+    }
+
+    private static Object resultSet(Object result) {
+        if (!(result instanceof ResultSet)) {
+            return result;
+        }
+        ResultSet target = (ResultSet) result;
+        return proxy(ResultSet.class, (proxy, method, args) -> {
+            if (!method.getName().equals("next")) {
+                return invoke(target, method, args);
+            }
+            long start = System.nanoTime();
+            boolean row = target.next();
+            SqlStatistics statistics = SqlStatistics.current();
+            if (statistics != null) {
+                statistics.fetched(row, System.nanoTime() - start);
+            }
+            return row;
+        });
+    }
+
+    private static String sql(String method, String preparedSql, Object[] args) {
+        if (preparedSql != null) {
+            return preparedSql;
+        }
+        if (args != null && args.length > 0 && args[0] instanceof String) {
+            return (String) args[0];
+        }
+        return method;
+    }
+
+    private static void record(String sql, long nanos) {
+        SqlStatistics statistics = SqlStatistics.current();
+        if (statistics != null) {
+            statistics.executed(sql, nanos);
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getTargetException();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(CLASS_LOADER, new Class<?>[] { type }, handler);
+    }
+
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Measures the SQL of every request with {@link SqlStatistics} and logs a warning for requests
+ * over their {@link SqlBudgetProperties budget}. With <code>responseHeaders</code> the counts are
+ * also sent as <code>X-SQL-Statements</code>, <code>X-SQL-Rows</code>, <code>X-SQL-Time</code>
+ * and <code>X-SQL-Connection-Time</code> (milliseconds), written when the response is committed
+ * so that statements issued while a view renders are included. Up to the response buffer size of
+ * the body is held back for that, no more than the container buffers anyway; a response that is
+ * flushed or outgrows the buffer, such as an export, carries the counts up to that point. The
+ * headers are left out in production.
+ * <p>
+ * For every request that takes a connection from the pool, the time it holds one is recorded as
+ * <code>petclinic.sql.connection.hold</code>, tagged with the URI pattern of the handler.
+ */
+class SqlStatisticsFilter extends OncePerRequestFilter {
+
+    private final SqlBudgetProperties budget;
+
+    private final boolean responseHeaders;
+
+    private final MeterRegistry registry;
+
+    SqlStatisticsFilter(SqlBudgetProperties budget, boolean responseHeaders, MeterRegistry registry) {
+        this.budget = budget;
+        this.responseHeaders = responseHeaders;
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        SqlStatistics statistics = SqlStatistics.start();
+        request.setAttribute(SqlStatistics.REQUEST_ATTRIBUTE, statistics);
+        try {
+            if (this.responseHeaders) {
+                HeaderWritingResponse wrapper = new HeaderWritingResponse(response, statistics);
+                filterChain.doFilter(request, wrapper);
+                wrapper.complete();
+            } else {
+                filterChain.doFilter(request, response);
+            }
+        } finally {
+            statistics.stop();
+            checkBudget(request, statistics);
+            recordConnectionHold(request, statistics);
+        }
+    }
+
+    private void recordConnectionHold(HttpServletRequest request, SqlStatistics statistics) {
+        if (statistics.getConnections() > 0) {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            Timer.builder("petclinic.sql.connection.hold")
+                .description("Time a request held a pooled JDBC connection")
+                .tag("uri", pattern != null ? pattern.toString() : "UNKNOWN")
+                .register(this.registry)
+                .record(statistics.getConnectionHoldTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void checkBudget(HttpServletRequest request, SqlStatistics statistics) {
+        boolean repeated = statistics.getMaxRepeats() > this.budget.getRepeats();
+        if (repeated || statistics.getStatements() > this.budget.getStatements()
+            || statistics.getTime(TimeUnit.NANOSECONDS) > this.budget.getTime().toNanos()) {
+            StringBuilder message = new StringBuilder(request.getMethod()).append(' ')
+                .append(request.getRequestURI()).append(" exceeded its SQL budget: ").append(statistics);
+            if (repeated) {
+                message.append(", executed ").append(statistics.getMaxRepeats()).append(" times: ")
+                    .append(statistics.getMostRepeatedStatement());
+            }
+            logger.warn(message);
+        }
+    }
+
+    /**
+     * Holds back as much of the body as the response buffer takes and writes the counts when it is
+     * passed on: on overflow, on flush, at the end of the request, and ahead of redirects and errors,
+     * which commit the response straight away.
+     */
+    private static class HeaderWritingResponse extends HttpServletResponseWrapper {
+
+        private final SqlStatistics statistics;
+
+        private final HoldingOutputStream outputStream = new HoldingOutputStream();
+
+        private PrintWriter writer;
+
+        HeaderWritingResponse(HttpServletResponse response, SqlStatistics statistics) {
+            super(response);
+            this.statistics = statistics;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (this.writer != null) {
+                throw new IllegalStateException("getWriter() has already been called for this response");
+            }
+            return this.outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (this.writer == null) {
+                this.writer = new PrintWriter(new OutputStreamWriter(this.outputStream, getCharacterEncoding()));
+            }
+            return this.writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (this.writer != null) {
+                this.writer.flush();
+            }
+            this.outputStream.flush();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void resetBuffer() {
+            this.outputStream.held.reset();
+            super.resetBuffer();
+        }
+
+        @Override
+        public void reset() {
+            this.outputStream.held.reset();
+            super.reset();
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeHeaders();
+            this.outputStream.held.reset();
+            super.sendRedirect(location);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeHeaders();
+            this.outputStream.held.reset();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeHeaders();
+            this.outputStream.held.reset();
+            super.sendError(sc, msg);
+        }
+
+        void complete() throws IOException {
+            writeHeaders();
+            if (this.writer != null) {
+                this.writer.flush();
+            }
+            if (this.outputStream.held.size() > 0) {
+                this.outputStream.release();
+            }
+        }
+
+        private void writeHeaders() {
+            if (!isCommitted()) {
+                setHeader("X-SQL-Statements", String.valueOf(this.statistics.getStatements()));
+                setHeader("X-SQL-Rows", String.valueOf(this.statistics.getRows()));
+                setHeader("X-SQL-Time", millis(this.statistics.getTime(TimeUnit.NANOSECONDS)));
+                setHeader("X-SQL-Connection-Time", millis(this.statistics.getConnectionHoldTime(TimeUnit.NANOSECONDS)));
+            }
+        }
+
+        private String millis(long nanos) {
+            return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+        }
+
+        private class HoldingOutputStream extends ServletOutputStream {
+
+            private final ByteArrayOutputStream held = new ByteArrayOutputStream();
+
+            /**
+             * The stream of the response, once the held bytes have been passed on.
+             */
+            private ServletOutputStream target;
+
+            @Override
+            public void write(int b) throws IOException {
+                if (this.target != null) {
+                    this.target.write(b);
+                    return;
+                }
+                this.held.write(b);
+                if (this.held.size() >= getBufferSize()) {
+                    release();
+                }
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (this.target == null && this.held.size() + len < getBufferSize()) {
+                    this.held.write(b, off, len);
+                    return;
+                }
+                release();
+                this.target.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (this.target != null || this.held.size() > 0) {
+                    release();
+                    this.target.flush();
+                }
+            }
+
+            /**
+             * Writes the counts and everything held so far; from here on the body goes straight
+             * through.
+             */
+            void release() throws IOException {
+                if (this.target == null) {
+                    writeHeaders();
+                    this.target = getResponse().getOutputStream();
+                    this.held.writeTo(this.target);
+                    this.held.reset();
+                }
+            }
+
+            @Override
+            public boolean isReady() {
+                return this.target == null || this.target.isReady();
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                try {
+                    release();
+                } catch (IOException ex) {
+                    throw new IllegalStateException(ex);
+                }
+                this.target.setWriteListener(writeListener);
+            }
+
+        }
+
+    }
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.View;
+import org.springframework.web.servlet.ViewResolver;
+import org.thymeleaf.spring5.view.AbstractThymeleafView;
+import org.thymeleaf.spring5.view.ThymeleafViewResolver;
+
+/**
+ * Emits a {@link TemplateRenderingEvent} for every Thymeleaf view rendered, by decorating the
+ * views handed out by the {@link ThymeleafViewResolver}. Redirects and other non-template views
+ * are passed through as they are.
+ */
+class TemplateRenderingEventPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        return bean instanceof ThymeleafViewResolver ? new EventViewResolver((ThymeleafViewResolver) bean) : bean;
+    }
+
+    private static class EventViewResolver implements ViewResolver, Ordered {
+
+        private final ThymeleafViewResolver target;
+
+        EventViewResolver(ThymeleafViewResolver target) {
+            this.target = target;
+        }
+
+        @Override
+        public View resolveViewName(String viewName, Locale locale) throws Exception {
+            View view = this.target.resolveViewName(viewName, locale);
+            return view instanceof AbstractThymeleafView ? new EventView(viewName, view) : view;
+        }
+
+        @Override
+        public int getOrder() {
+            return this.target.getOrder();
+        }
+
+    }
+
+    private static class EventView implements View {
+
+        private final String template;
+
+        private final View target;
+
+        EventView(String template, View target) {
+            this.template = template;
+            this.target = target;
+        }
+
+        @Override
+        public String getContentType() {
+            return this.target.getContentType();
+        }
+
+        @Override
+        public void render(Map<String, ?> model, HttpServletRequest request, HttpServletResponse response)
+            throws Exception {
+            TemplateRenderingEvent event = new TemplateRenderingEvent();
+            if (!event.isEnabled()) {
+                this.target.render(model, request, response);
+                return;
+            }
+            CountingResponse counting = new CountingResponse(response);
+            event.begin();
+            try {
+                this.target.render(model, request, counting);
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.template = this.template;
+                    event.bytes = counting.getBytes();
+                    event.commit();
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Counts what the view writes through {@link #getWriter()}, in UTF-8 bytes when that is the
+     * response encoding and in characters otherwise.
+     */
+    private static class CountingResponse extends HttpServletResponseWrapper {
+
+        private CountingWriter writer;
+
+        private PrintWriter printWriter;
+
+        CountingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (this.printWriter == null) {
+                this.writer = new CountingWriter(super.getWriter(),
+                    StandardCharsets.UTF_8.name().equalsIgnoreCase(getCharacterEncoding()));
+                this.printWriter = new PrintWriter(this.writer);
+            }
+            return this.printWriter;
+        }
+
+        long getBytes() {
+            return this.writer == null ? 0 : this.writer.bytes;
+        }
+
+    }
+
+    private static class CountingWriter extends FilterWriter {
+
+        private final boolean utf8;
+
+        private long bytes;
+
+        CountingWriter(Writer out, boolean utf8) {
+            super(out);
+            this.utf8 = utf8;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            count((char) c);
+            super.write(c);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                count(cbuf[i]);
+            }
+            super.write(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                count(str.charAt(i));
+            }
+            super.write(str, off, len);
+        }
+
+        private void count(char c) {
+            if (!this.utf8 || c < 0x80) {
+                this.bytes++;
+            } else if (c < 0x800 || Character.isSurrogate(c)) {
+                // each half of a surrogate pair accounts for two of its four bytes
+                this.bytes += 2;
+            } else {
+                this.bytes += 3;
+            }
+        }
+
+    }
+
+    @Name("org.springframework.samples.petclinic.TemplateRendering")
+    @Label("Template Rendering")
+    @Category({ "Pet Clinic", "Web" })
+    @StackTrace(false)
+    static class TemplateRenderingEvent extends Event {
+
+        @Label("Template")
+        String template;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+    }
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.io.Serializable;
+
+import org.springframework.http.MediaType;
+import org.springframework.util.DigestUtils;
+
+/**
+ * The list of {@link Vets} already written in one representation (JSON or XML), together with
+ * its content type and a strong entity tag computed from the bytes.
+ */
+class SerializedVets implements Serializable {
+
+    private final byte[] body;
+
+    private final String contentType;
+
+    private final String eTag;
+
+    SerializedVets(byte[] body, MediaType contentType) {
+        this.body = body;
+        this.contentType = contentType.toString();
+        this.eTag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+    }
+
+    byte[] getBody() {
+        return this.body;
+    }
+
+    MediaType getContentType() {
+        return MediaType.parseMediaType(this.contentType);
+    }
+
+    String getETag() {
+        return this.eTag;
+    }
+
+}
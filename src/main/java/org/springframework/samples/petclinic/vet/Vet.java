@@ -17,20 +17,22 @@ package org.springframework.samples.petclinic.vet;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import javax.persistence.Entity;
-import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.OrderBy;
 import javax.persistence.Table;
 import javax.xml.bind.annotation.XmlElement;
 
-import org.springframework.beans.support.MutableSortDefinition;
-import org.springframework.beans.support.PropertyComparator;
+import org.hibernate.annotations.BatchSize;
 import org.springframework.samples.petclinic.model.Person;
 
 /**
@@ -43,12 +45,28 @@ import org.springframework.samples.petclinic.model.Person;
  */
 @Entity
 @Table(name = "vets")
+@NamedEntityGraph(name = "Vet.withSpecialties", attributeNodes = @NamedAttributeNode("specialties"))
 public class Vet extends Person {
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    private static final Comparator<Specialty> SPECIALTIES_BY_NAME =
+        Comparator.comparing(Specialty::getName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+
+    /**
+     * Loaded through the <code>Vet.withSpecialties</code> entity graph, otherwise initialized for
+     * up to 20 vets per query.
+     */
+    @ManyToMany
+    @BatchSize(size = 20)
     @JoinTable(name = "vet_specialties", joinColumns = @JoinColumn(name = "vet_id"), inverseJoinColumns = @JoinColumn(name = "specialty_id"))
+    @OrderBy("name")
     private Set<Specialty> specialties;
 
+    /**
+     * Sorted, read-only view of {@link #specialties}, built on first access and discarded whenever
+     * a specialty is added.
+     */
+    private transient List<Specialty> sortedSpecialties;
+
     protected Set<Specialty> getSpecialtiesInternal() {
         if (this.specialties == null) {
             this.specialties = new HashSet<>();
@@ -58,14 +76,19 @@ public class Vet extends Person {
 
     protected void setSpecialtiesInternal(Set<Specialty> specialties) {
         this.specialties = specialties;
+        this.sortedSpecialties = null;
     }
 
     @XmlElement
     public List<Specialty> getSpecialties() {
-        List<Specialty> sortedSpecs = new ArrayList<>(getSpecialtiesInternal());
-        PropertyComparator.sort(sortedSpecs,
-                new MutableSortDefinition("name", true, true));
-        return Collections.unmodifiableList(sortedSpecs);
+        List<Specialty> sorted = this.sortedSpecialties;
+        if (sorted == null) {
+            sorted = new ArrayList<>(getSpecialtiesInternal());
+            sorted.sort(SPECIALTIES_BY_NAME);
+            sorted = Collections.unmodifiableList(sorted);
+            this.sortedSpecialties = sorted;
+        }
+        return sorted;
     }
 
     public int getNrOfSpecialties() {
@@ -74,6 +97,7 @@ public class Vet extends Person {
 
     public void addSpecialty(Specialty specialty) {
         getSpecialtiesInternal().add(specialty);
+        this.sortedSpecialties = null;
     }
 
 }
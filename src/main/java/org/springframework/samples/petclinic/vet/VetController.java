@@ -16,11 +16,13 @@
 package org.springframework.samples.petclinic.vet;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.ResponseBody;
 
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * @author Juergen Hoeller
@@ -32,29 +34,39 @@ import java.util.Map;
 class VetController {
 
     private final VetRepository vets;
+    private final VetsSerializer serializer;
 
     @Autowired
-    public VetController(VetRepository clinicService) {
+    public VetController(VetRepository clinicService, VetsSerializer serializer) {
         this.vets = clinicService;
+        this.serializer = serializer;
     }
 
     @GetMapping("/vets.html")
     public String showVetList(Map<String, Object> model) {
-        // Here we are returning an object of type 'Vets' rather than a collection of Vet
-        // objects so it is simpler for Object-Xml mapping
-        Vets vets = new Vets();
-        vets.getVetList().addAll(this.vets.findAll());
-        model.put("vets", vets);
+        model.put("vets", this.vets.findAll().stream().map(VetDetails::new).collect(Collectors.toList()));
         return "vets/vetList";
     }
 
-    @GetMapping({ "/vets.json", "/vets.xml" })
-    public @ResponseBody Vets showResourcesVetList() {
-        // Here we are returning an object of type 'Vets' rather than a collection of Vet
-        // objects so it is simpler for JSon/Object mapping
-        Vets vets = new Vets();
-        vets.getVetList().addAll(this.vets.findAll());
-        return vets;
+    /**
+     * The JSON and XML representations are serialized once per cache period and answered with a
+     * strong ETag, so a poller sending <code>If-None-Match</code> gets a 304 without a body.
+     */
+    @GetMapping("/vets.json")
+    public ResponseEntity<byte[]> showJsonVetList() {
+        return toResponse(this.serializer.serialize(MediaType.APPLICATION_JSON));
+    }
+
+    @GetMapping("/vets.xml")
+    public ResponseEntity<byte[]> showXmlVetList() {
+        return toResponse(this.serializer.serialize(MediaType.APPLICATION_XML));
+    }
+
+    private ResponseEntity<byte[]> toResponse(SerializedVets vets) {
+        return ResponseEntity.ok()
+            .eTag(vets.getETag())
+            .contentType(vets.getContentType())
+            .body(vets.getBody());
     }
 
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * What the vets page shows of a {@link Vet}: its name and the names of its specialties, copied out
+ * of the entity.
+ */
+public class VetDetails {
+
+    private final String firstName;
+
+    private final String lastName;
+
+    private final List<String> specialties;
+
+    public VetDetails(Vet vet) {
+        this.firstName = vet.getFirstName();
+        this.lastName = vet.getLastName();
+        this.specialties = Collections.unmodifiableList(vet.getSpecialties().stream()
+            .map(Specialty::getName)
+            .collect(Collectors.toList()));
+    }
+
+    public String getFirstName() {
+        return this.firstName;
+    }
+
+    public String getLastName() {
+        return this.lastName;
+    }
+
+    /**
+     * @return the names of the specialties in alphabetical order
+     */
+    public List<String> getSpecialties() {
+        return this.specialties;
+    }
+
+}
@@ -17,9 +17,13 @@ package org.springframework.samples.petclinic.vet;
 
 import java.util.Collection;
 
+import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
+import org.springframework.samples.petclinic.system.SingleFlight;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -38,9 +42,24 @@ public interface VetRepository extends Repository<Vet, Integer> {
      *
      * @return a <code>Collection</code> of <code>Vet</code>s
      */
+    @Query("SELECT DISTINCT vet FROM Vet vet")
+    @EntityGraph("Vet.withSpecialties")
     @Transactional(readOnly = true)
     @Cacheable("vets")
+    @SingleFlight
     Collection<Vet> findAll() throws DataAccessException;
 
+    /**
+     * Load all <code>Vet</code>s from the data store and replace the cached result of
+     * {@link #findAll()} with them.
+     *
+     * @return a <code>Collection</code> of <code>Vet</code>s
+     */
+    @Query("SELECT DISTINCT vet FROM Vet vet")
+    @EntityGraph("Vet.withSpecialties")
+    @Transactional(readOnly = true)
+    @CachePut("vets")
+    Collection<Vet> reloadAll() throws DataAccessException;
+
 
 }
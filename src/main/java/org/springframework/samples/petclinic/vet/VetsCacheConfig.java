@@ -0,0 +1,45 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.samples.petclinic.system.CacheProperties;
+
+/**
+ * Creates the {@link VetsCacheRefresher} wherever the caches exist, that is in the
+ * <code>production</code> profile. Its health is published as <code>vetsCache</code>.
+ */
+@Configuration
+@Profile("production")
+class VetsCacheConfig {
+
+    @Bean
+    public VetsCacheRefresher vetsCacheRefresher(VetRepository vets, VetsSerializer serializer,
+                                                 CacheProperties properties, MeterRegistry registry) {
+        return new VetsCacheRefresher(vets, serializer,
+            properties.getSpecs().getOrDefault("vets", new CacheProperties.Spec()), registry);
+    }
+
+    @Bean
+    public HealthIndicator vetsCacheHealthIndicator(VetsCacheRefresher refresher) {
+        return refresher::health;
+    }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.system.CacheProperties;
+
+/**
+ * Keeps the <code>vets</code> cache warm: it is loaded while the application context starts,
+ * before the web server accepts the first request, and reloaded in the background every
+ * {@link CacheProperties.Spec#getRefreshAfter() refresh-after}, ahead of the entries'
+ * time to live, so that no request pays for the query or for serializing the vets. A reload
+ * replaces the cached list of vets and its JSON and XML representations through
+ * {@link VetRepository#reloadAll()} and {@link VetsSerializer#reserialize(MediaType)}; readers
+ * keep getting the previous entries meanwhile.
+ * <p>
+ * The cached vets are therefore at most refresh-after old while the database is reachable. If
+ * reloads fail they are retried every {@value #RETRY_SECONDS} seconds, the previous entries are
+ * served until their time to live is up, and the {@link #health() health} goes
+ * <code>OUT_OF_SERVICE</code>. It is also <code>OUT_OF_SERVICE</code> until the first load
+ * succeeded.
+ * <p>
+ * Publishes <code>petclinic.cache.refresh</code>, the time taken by each reload, tagged with the
+ * cache and the exception thrown (<code>None</code> on success).
+ */
+class VetsCacheRefresher implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(VetsCacheRefresher.class);
+
+    static final long RETRY_SECONDS = 10;
+
+    private final VetRepository vets;
+
+    private final VetsSerializer serializer;
+
+    private final Duration refreshAfter;
+
+    private final Duration timeToLive;
+
+    private final MeterRegistry registry;
+
+    private volatile Instant refreshed;
+
+    private volatile boolean running;
+
+    private ScheduledExecutorService scheduler;
+
+    VetsCacheRefresher(VetRepository vets, VetsSerializer serializer, CacheProperties.Spec spec,
+                       MeterRegistry registry) {
+        this.vets = vets;
+        this.serializer = serializer;
+        this.refreshAfter = spec.getRefreshAfter();
+        // a time to idle is no bound on how old the entries get, as every read extends it
+        this.timeToLive = spec.getTimeToLive();
+        this.registry = registry;
+        if (this.refreshAfter != null && this.timeToLive != null && this.refreshAfter.compareTo(this.timeToLive) >= 0) {
+            throw new IllegalStateException("The refresh-after of the vets cache (" + this.refreshAfter
+                + ") must be shorter than its time to live (" + this.timeToLive + ")");
+        }
+    }
+
+    /**
+     * Reload the vets and their representations into the cache.
+     * @return whether the reload succeeded
+     */
+    boolean refresh() {
+        Timer.Sample sample = Timer.start(this.registry);
+        String exception = "None";
+        try {
+            this.vets.reloadAll();
+            this.serializer.reserialize(MediaType.APPLICATION_JSON);
+            this.serializer.reserialize(MediaType.APPLICATION_XML);
+            this.refreshed = Instant.now();
+            return true;
+        } catch (RuntimeException ex) {
+            exception = ex.getClass().getSimpleName();
+            logger.warn("Could not load the vets cache, retrying in {} seconds", RETRY_SECONDS, ex);
+            return false;
+        } finally {
+            sample.stop(Timer.builder("petclinic.cache.refresh")
+                .description("Time taken to reload a cache ahead of expiry")
+                .tag("cache", "vets")
+                .tag("exception", exception)
+                .register(this.registry));
+        }
+    }
+
+    /**
+     * @return <code>UP</code> while the cached vets are fresh, <code>OUT_OF_SERVICE</code> before
+     * the first load and once they are past their time to live
+     */
+    public Health health() {
+        Instant refreshed = this.refreshed;
+        if (refreshed == null) {
+            return Health.outOfService().withDetail("refreshed", "never").build();
+        }
+        Duration age = Duration.between(refreshed, Instant.now());
+        boolean expired = this.refreshAfter != null && this.timeToLive != null && age.compareTo(this.timeToLive) >= 0;
+        return (expired ? Health.outOfService() : Health.up())
+            .withDetail("refreshed", refreshed.toString())
+            .withDetail("age", age.toString())
+            .build();
+    }
+
+    @Override
+    public synchronized void start() {
+        this.running = true;
+        boolean loaded = refresh();
+        if (this.refreshAfter != null) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "vets-cache-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            schedule(loaded);
+        }
+    }
+
+    private void schedule(boolean loaded) {
+        long delay = loaded ? this.refreshAfter.toMillis()
+            : Math.min(TimeUnit.SECONDS.toMillis(RETRY_SECONDS), this.refreshAfter.toMillis());
+        this.scheduler.schedule(() -> {
+            if (this.running) {
+                schedule(refresh());
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        this.running = false;
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+            this.scheduler = null;
+        }
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        stop();
+        callback.run();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes the list of vets with the same message converters Spring MVC would use and keeps the
+ * result in the <code>vets</code> cache, next to the cached {@link VetRepository#findAll()}, so
+ * that <code>/vets.json</code> and <code>/vets.xml</code> serve ready-made bytes.
+ */
+@Component
+class VetsSerializer {
+
+    private final VetRepository vets;
+
+    private final HttpMessageConverters converters;
+
+    @Autowired
+    public VetsSerializer(VetRepository vets, HttpMessageConverters converters) {
+        this.vets = vets;
+        this.converters = converters;
+    }
+
+    @Cacheable(cacheNames = "vets", key = "#mediaType.toString()")
+    public SerializedVets serialize(MediaType mediaType) {
+        // Here we are writing an object of type 'Vets' rather than a collection of Vet
+        // objects so it is simpler for JSon/Object-Xml mapping
+        Vets vets = new Vets();
+        vets.getVetList().addAll(this.vets.findAll());
+        for (HttpMessageConverter<?> converter : this.converters) {
+            if (converter.canWrite(Vets.class, mediaType)) {
+                return write(vets, mediaType, converter);
+            }
+        }
+        throw new IllegalArgumentException("No converter for " + mediaType);
+    }
+
+    /**
+     * Serialize the vets again, from the cached {@link VetRepository#findAll()}, and replace the
+     * cached result of {@link #serialize(MediaType)} with it.
+     */
+    @CachePut(cacheNames = "vets", key = "#mediaType.toString()")
+    public SerializedVets reserialize(MediaType mediaType) {
+        return serialize(mediaType);
+    }
+
+    @SuppressWarnings("unchecked")
+    private SerializedVets write(Vets vets, MediaType mediaType, HttpMessageConverter<?> converter) {
+        BufferedOutputMessage message = new BufferedOutputMessage();
+        try {
+            ((HttpMessageConverter<Vets>) converter).write(vets, mediaType, message);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return new SerializedVets(message.body.toByteArray(), message.headers.getContentType());
+    }
+
+    private static class BufferedOutputMessage implements HttpOutputMessage {
+
+        private final HttpHeaders headers = new HttpHeaders();
+
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(4096);
+
+        @Override
+        public OutputStream getBody() {
+            return this.body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return this.headers;
+        }
+
+    }
+
+}
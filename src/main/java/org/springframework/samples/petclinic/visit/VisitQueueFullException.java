@@ -0,0 +1,32 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visit;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when the write-behind queue stays full for longer than the enqueue timeout, so that
+ * clients back off instead of piling up behind the writer.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class VisitQueueFullException extends RuntimeException {
+
+    public VisitQueueFullException(int capacity) {
+        super("More than " + capacity + " visits are waiting to be written");
+    }
+
+}
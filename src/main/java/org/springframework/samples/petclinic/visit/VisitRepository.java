@@ -18,8 +18,12 @@ package org.springframework.samples.petclinic.visit;
 import java.util.List;
 
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.samples.petclinic.model.BaseEntity;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Repository class for <code>Visit</code> domain objects All method names are compliant with Spring Data naming
@@ -40,6 +44,27 @@ public interface VisitRepository extends Repository<Visit, Integer> {
      */
     void save(Visit visit) throws DataAccessException;
 
+    /**
+     * Insert or update several <code>Visit</code>s in one transaction. New visits are flushed
+     * together, so Hibernate sends them as JDBC batches.
+     *
+     * @param visits the <code>Visit</code>s to save
+     * @return the saved visits
+     */
+    List<Visit> saveAll(Iterable<Visit> visits) throws DataAccessException;
+
     List<Visit> findByPetId(Integer petId);
 
+    /**
+     * Retrieve the latest <code>Visit</code>s of a pet, without loading the pet or the rest of its
+     * history.
+     *
+     * @param petId the id of the pet
+     * @param pageable how many visits to return
+     * @return the visits, latest first
+     */
+    @Query("SELECT visit FROM Visit visit WHERE visit.petId = :petId ORDER BY visit.date DESC, visit.id DESC")
+    @Transactional(readOnly = true)
+    List<Visit> findLatestByPetId(@Param("petId") Integer petId, Pageable pageable);
+
 }
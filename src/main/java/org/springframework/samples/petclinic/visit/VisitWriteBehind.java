@@ -0,0 +1,341 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Records new visits through a bounded in-process queue. A single background thread writes the
+ * queue in group commits: once a visit arrives it waits up to
+ * {@link WriteBehindProperties#getMaxDelay() max-delay} for more, then saves up to
+ * {@link WriteBehindProperties#getBatchSize() batch-size} visits with one
+ * {@link VisitRepository#saveAll} and one commit. Under load many requests share a commit.
+ * <p>
+ * With {@link WriteBehindProperties.Ack#COMMIT} {@link #record(Visit)} returns once the visit is
+ * committed, or fails after {@link WriteBehindProperties#getAckTimeout() ack-timeout}. With
+ * {@link WriteBehindProperties.Ack#ENQUEUE} it returns as soon as the visit is queued, so a crash
+ * can lose queued visits and a page read right after may not show them yet. If a group commit
+ * fails, its visits are retried one at a time so that a single bad row does not take the others
+ * down.
+ * <p>
+ * Stopping the application context drains the queue, waiting at most
+ * {@link WriteBehindProperties#getShutdownTimeout() shutdown-timeout}; if the writer is stuck, for
+ * example on the database, the visits it has not committed yet are logged as lost. Visits recorded while the writer is not
+ * running are saved by the calling thread: lifecycle beans stop before the embedded web server,
+ * so requests still in flight during shutdown reach {@link #record(Visit)} after the writer has
+ * gone. The same goes for a writer that dies, for example when interrupted; an error while writing
+ * a batch fails only that batch.
+ * <p>
+ * Publishes <code>petclinic.visits.writebehind.queue.depth</code>,
+ * <code>petclinic.visits.writebehind.batch.size</code>, <code>petclinic.visits.writebehind.flush</code>
+ * (the time a group commit takes), <code>petclinic.visits.writebehind.latency</code> (from queueing
+ * to commit) and <code>petclinic.visits.writebehind.failures</code>.
+ */
+public class VisitWriteBehind implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitWriteBehind.class);
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final VisitRepository visits;
+
+    private final TransactionTemplate transactions;
+
+    private final WriteBehindProperties properties;
+
+    private final BlockingQueue<Pending> queue;
+
+    private final DistributionSummary batchSizes;
+
+    private final Timer flushes;
+
+    private final Timer latencies;
+
+    private final Counter failures;
+
+    /**
+     * Held for reading while a visit is queued and for writing while the writer is told to stop,
+     * so that nothing enters the queue once the writer may have drained it for the last time.
+     */
+    private final ReadWriteLock accepting = new ReentrantReadWriteLock();
+
+    private volatile boolean running;
+
+    private Thread writer;
+
+    public VisitWriteBehind(VisitRepository visits, PlatformTransactionManager transactionManager,
+                            WriteBehindProperties properties, MeterRegistry registry) {
+        this.visits = visits;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        Gauge.builder("petclinic.visits.writebehind.queue.depth", this.queue, BlockingQueue::size)
+            .description("Visits waiting to be written")
+            .register(registry);
+        this.batchSizes = DistributionSummary.builder("petclinic.visits.writebehind.batch.size")
+            .description("Visits per group commit")
+            .register(registry);
+        this.flushes = Timer.builder("petclinic.visits.writebehind.flush")
+            .description("Time taken by a group commit")
+            .register(registry);
+        this.latencies = Timer.builder("petclinic.visits.writebehind.latency")
+            .description("Time from queueing a visit until it is committed")
+            .register(registry);
+        this.failures = Counter.builder("petclinic.visits.writebehind.failures")
+            .description("Visits that could not be written")
+            .register(registry);
+    }
+
+    /**
+     * Queue a validated visit for writing, or save it right away if the writer is not running.
+     *
+     * @param visit the new visit, with its pet id set
+     * @throws VisitQueueFullException if the queue stayed full for the enqueue timeout
+     * @throws IllegalStateException if the commit was not acknowledged within the ack timeout; the
+     * visit may still be written later
+     * @throws RuntimeException the failure of the commit, when acknowledging after commit
+     */
+    public void record(Visit visit) {
+        Pending pending = new Pending(visit);
+        try {
+            if (!enqueue(pending)) {
+                this.transactions.execute(status -> {
+                    this.visits.save(visit);
+                    return null;
+                });
+                return;
+            }
+            if (this.properties.getAck() == WriteBehindProperties.Ack.COMMIT) {
+                pending.committed.get(this.properties.getAckTimeout().toNanos(), TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while recording a visit", ex);
+        } catch (ExecutionException ex) {
+            throw ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause()
+                : new IllegalStateException(ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new IllegalStateException("The visit for pet " + visit.getPetId() + " was not committed within "
+                + this.properties.getAckTimeout(), ex);
+        }
+    }
+
+    /**
+     * @return whether the visit was queued, false if the writer is not running
+     */
+    private boolean enqueue(Pending pending) throws InterruptedException {
+        this.accepting.readLock().lock();
+        try {
+            if (!this.running) {
+                return false;
+            }
+            if (!this.queue.offer(pending, this.properties.getEnqueueTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new VisitQueueFullException(this.properties.getQueueCapacity());
+            }
+            return true;
+        } finally {
+            this.accepting.readLock().unlock();
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        this.running = true;
+        this.writer = new Thread(this::writeLoop, "visit-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        this.accepting.writeLock().lock();
+        try {
+            this.running = false;
+        } finally {
+            this.accepting.writeLock().unlock();
+        }
+        if (this.writer != null) {
+            try {
+                // join(0) would wait forever
+                this.writer.join(Math.max(1, this.properties.getShutdownTimeout().toMillis()));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (this.writer.isAlive()) {
+                logger.warn("The visit writer did not finish within {}, {} queued visits and the batch being "
+                    + "written are not committed", this.properties.getShutdownTimeout(), this.queue.size());
+            }
+            this.writer = null;
+        }
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        stop();
+        callback.run();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(this.properties.getBatchSize());
+        try {
+            while (this.running || !this.queue.isEmpty()) {
+                Pending first = this.queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    try {
+                        collect(batch);
+                        write(batch);
+                    } catch (InterruptedException ex) {
+                        throw ex;
+                    } catch (Throwable ex) {
+                        // such as an OutOfMemoryError; the writer carries on with the next batch
+                        logger.error("Could not write {} visits", batch.size(), ex);
+                        fail(batch, ex);
+                    }
+                    batch.clear();
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (this.running) {
+                logger.error("The visit writer stopped unexpectedly, visits are saved by the requests from now on");
+            }
+            this.accepting.writeLock().lock();
+            try {
+                this.running = false;
+            } finally {
+                this.accepting.writeLock().unlock();
+            }
+            this.queue.drainTo(batch);
+            fail(batch, new IllegalStateException("The visit writer has stopped"));
+        }
+    }
+
+    private void fail(List<Pending> batch, Throwable ex) {
+        for (Pending pending : batch) {
+            if (pending.committed.completeExceptionally(ex)) {
+                this.failures.increment();
+            }
+        }
+    }
+
+    /**
+     * Add whatever arrives within the max delay after the first visit, up to the batch size.
+     */
+    private void collect(List<Pending> batch) throws InterruptedException {
+        int batchSize = this.properties.getBatchSize();
+        long deadline = System.nanoTime() + this.properties.getMaxDelay().toNanos();
+        while (batch.size() < batchSize) {
+            if (this.queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            Pending next = remaining > 0 ? this.queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        long start = System.nanoTime();
+        try {
+            List<Visit> toSave = batch.stream().map(pending -> pending.visit).collect(Collectors.toList());
+            this.transactions.execute(status -> this.visits.saveAll(toSave));
+            batch.forEach(this::committed);
+        } catch (RuntimeException ex) {
+            logger.warn("Group commit of {} visits failed, retrying them one by one", batch.size(), ex);
+            batch.forEach(this::writeAlone);
+        } finally {
+            this.flushes.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            this.batchSizes.record(batch.size());
+        }
+    }
+
+    private void writeAlone(Pending pending) {
+        // the rolled back group commit may have assigned an id already
+        pending.visit.setId(null);
+        try {
+            this.transactions.execute(status -> {
+                this.visits.save(pending.visit);
+                return null;
+            });
+            committed(pending);
+        } catch (RuntimeException ex) {
+            logger.error("Could not write visit for pet {}", pending.visit.getPetId(), ex);
+            this.failures.increment();
+            pending.committed.completeExceptionally(ex);
+        }
+    }
+
+    private void committed(Pending pending) {
+        this.latencies.record(System.nanoTime() - pending.queuedAt, TimeUnit.NANOSECONDS);
+        pending.committed.complete(pending.visit);
+    }
+
+    private static class Pending {
+
+        private final Visit visit;
+
+        private final long queuedAt = System.nanoTime();
+
+        private final CompletableFuture<Visit> committed = new CompletableFuture<>();
+
+        Pending(Visit visit) {
+            this.visit = visit;
+        }
+
+    }
+
+}
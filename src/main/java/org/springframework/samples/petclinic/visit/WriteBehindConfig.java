@@ -0,0 +1,40 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Creates the {@link VisitWriteBehind} when <code>petclinic.visits.write-behind.enabled</code> is
+ * set; without it visits are saved by the request that submits them.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "petclinic.visits.write-behind", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(WriteBehindProperties.class)
+class WriteBehindConfig {
+
+    @Bean
+    public VisitWriteBehind visitWriteBehind(VisitRepository visits, PlatformTransactionManager transactionManager,
+                                             WriteBehindProperties properties, MeterRegistry registry) {
+        return new VisitWriteBehind(visits, transactionManager, properties, registry);
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visit;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the optional write-behind visit writer, see {@link VisitWriteBehind}.
+ */
+@ConfigurationProperties("petclinic.visits.write-behind")
+public class WriteBehindProperties {
+
+    /**
+     * When a visit counts as recorded.
+     */
+    public enum Ack {
+
+        /**
+         * As soon as it is queued; a crash before the next group commit loses it.
+         */
+        ENQUEUE,
+
+        /**
+         * Once the group commit that contains it has succeeded.
+         */
+        COMMIT
+
+    }
+
+    /**
+     * Whether new visits go through the write-behind queue instead of being saved by the request.
+     */
+    private boolean enabled;
+
+    /**
+     * Maximum number of visits waiting to be written.
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * Maximum number of visits written in one transaction.
+     */
+    private int batchSize = 100;
+
+    /**
+     * How long the writer keeps collecting visits after the first one of a batch arrived.
+     */
+    private Duration maxDelay = Duration.ofMillis(10);
+
+    /**
+     * How long a request waits for room in a full queue before it is turned away.
+     */
+    private Duration enqueueTimeout = Duration.ofSeconds(1);
+
+    private Ack ack = Ack.COMMIT;
+
+    /**
+     * How long a request waits for the group commit of its visit when acknowledging after commit.
+     */
+    private Duration ackTimeout = Duration.ofSeconds(10);
+
+    /**
+     * How long stopping the application context waits for the writer to drain the queue.
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getQueueCapacity() {
+        return this.queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getMaxDelay() {
+        return this.maxDelay;
+    }
+
+    public void setMaxDelay(Duration maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+    public Duration getEnqueueTimeout() {
+        return this.enqueueTimeout;
+    }
+
+    public void setEnqueueTimeout(Duration enqueueTimeout) {
+        this.enqueueTimeout = enqueueTimeout;
+    }
+
+    public Ack getAck() {
+        return this.ack;
+    }
+
+    public void setAck(Ack ack) {
+        this.ack = ack;
+    }
+
+    public Duration getAckTimeout() {
+        return this.ackTimeout;
+    }
+
+    public void setAckTimeout(Duration ackTimeout) {
+        this.ackTimeout = ackTimeout;
+    }
+
+    public Duration getShutdownTimeout() {
+        return this.shutdownTimeout;
+    }
+
+    public void setShutdownTimeout(Duration shutdownTimeout) {
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+}
@@ -5,6 +5,11 @@ DROP TABLE visits IF EXISTS;
 DROP TABLE pets IF EXISTS;
 DROP TABLE types IF EXISTS;
 DROP TABLE owners IF EXISTS;
+DROP SEQUENCE hibernate_sequence IF EXISTS;
+
+-- ids handed out by Hibernate in blocks of 50 (pooled optimizer): the first block is 51-100,
+-- above the ids used by data.sql; the increment must match BaseEntity's allocation size
+CREATE SEQUENCE hibernate_sequence AS INTEGER START WITH 100 INCREMENT BY 50;
 
 
 CREATE TABLE vets (
@@ -39,7 +44,8 @@ CREATE TABLE owners (
   last_name  VARCHAR_IGNORECASE(30),
   address    VARCHAR(255),
   city       VARCHAR(80),
-  telephone  VARCHAR(20)
+  telephone  VARCHAR(20),
+  version    INTEGER DEFAULT 0 NOT NULL
 );
 CREATE INDEX owners_last_name ON owners (last_name);
 
@@ -61,4 +67,4 @@ CREATE TABLE visits (
   description VARCHAR(255)
 );
 ALTER TABLE visits ADD CONSTRAINT fk_visits_pets FOREIGN KEY (pet_id) REFERENCES pets (id);
-CREATE INDEX visits_pet_id ON visits (pet_id);
+CREATE INDEX visits_pet_id_date ON visits (pet_id, visit_date);
@@ -42,6 +42,7 @@ CREATE TABLE IF NOT EXISTS owners (
   address VARCHAR(255),
   city VARCHAR(80),
   telephone VARCHAR(20),
+  version INT(4) UNSIGNED NOT NULL DEFAULT 0,
   INDEX(last_name)
 ) engine=InnoDB;
 
@@ -61,5 +62,20 @@ CREATE TABLE IF NOT EXISTS visits (
   pet_id INT(4) UNSIGNED NOT NULL,
   visit_date DATE,
   description VARCHAR(255),
+  INDEX(pet_id, visit_date),
   FOREIGN KEY (pet_id) REFERENCES pets(id)
 ) engine=InnoDB;
+
+-- owners.version is only created with the table. A database created before it was added needs
+--   ALTER TABLE owners ADD COLUMN version INT(4) UNSIGNED NOT NULL DEFAULT 0;
+-- once, as MySQL has no ADD COLUMN IF NOT EXISTS for this script to run on every start.
+
+-- ids handed out by Hibernate in blocks of 50 (pooled optimizer): the first block is 51-100,
+-- above the ids used by data.sql. On an existing database set next_val above the largest id
+-- in any table, e.g. UPDATE hibernate_sequence SET next_val = <max id> + 100;
+CREATE TABLE IF NOT EXISTS hibernate_sequence (
+  next_val BIGINT NOT NULL
+) engine=InnoDB;
+
+INSERT INTO hibernate_sequence (next_val)
+  SELECT 100 FROM DUAL WHERE NOT EXISTS (SELECT * FROM hibernate_sequence);
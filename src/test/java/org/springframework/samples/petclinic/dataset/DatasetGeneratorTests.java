@@ -0,0 +1,113 @@
+package org.springframework.samples.petclinic.dataset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.model.BaseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Test class for {@link DatasetGenerator}. Moving the id sequence commits, so the tests do not
+ * run in a transaction and each gets a fresh database.
+ */
+@RunWith(SpringRunner.class)
+@JdbcTest
+@Import(DatasetGenerator.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class DatasetGeneratorTests {
+
+    @Autowired
+    private DatasetGenerator generator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void shouldAddTheRequestedDataWithSkew() {
+        DatasetGenerator.Summary summary = this.generator.generate(properties(7));
+
+        assertThat(summary.getOwners()).isEqualTo(2000);
+        assertThat(count("owners")).isEqualTo(10 + 2000);
+        assertThat(count("pets")).isEqualTo(13 + summary.getPets());
+        assertThat(count("visits")).isEqualTo(4 + summary.getVisits());
+        assertThat(count("vets")).isEqualTo(6 + 20);
+        assertThat(summary.getPets()).isBetween(3600L, 4400L);
+        assertThat(summary.getVisits()).isBetween(15000L, 25000L);
+
+        // about 4% of the owners share the most common last name
+        Integer mostCommon = this.jdbcTemplate.queryForObject(
+            "SELECT MAX(c) FROM (SELECT COUNT(*) AS c FROM owners GROUP BY last_name) AS names", Integer.class);
+        assertThat(mostCommon).isGreaterThan(40);
+        // the busiest fifth of the pets has more than half of the visits
+        List<Integer> perPet = this.jdbcTemplate.queryForList(
+            "SELECT COUNT(*) FROM visits WHERE id > 4 GROUP BY pet_id ORDER BY COUNT(*) DESC", Integer.class);
+        int busiest = perPet.subList(0, (int) (summary.getPets() / 5)).stream().mapToInt(Integer::intValue).sum();
+        assertThat(busiest * 2L).isGreaterThan(summary.getVisits());
+    }
+
+    @Test
+    public void shouldGenerateTheSameRowsForTheSameSeed() {
+        this.generator.generate(properties(7));
+        List<String> first = snapshot();
+        deleteGenerated();
+        this.generator.generate(properties(7));
+        List<String> second = snapshot();
+        deleteGenerated();
+        this.generator.generate(properties(8));
+
+        assertThat(second).isEqualTo(first);
+        assertThat(snapshot()).isNotEqualTo(first);
+    }
+
+    @Test
+    public void shouldLetHibernateAllocateIdsAboveTheGeneratedOnes() {
+        this.generator.generate(properties(7));
+
+        Integer maxId = this.jdbcTemplate.queryForObject(
+            "SELECT MAX(id) FROM (SELECT id FROM owners UNION SELECT id FROM pets UNION SELECT id FROM visits) AS ids",
+            Integer.class);
+        Integer next = this.jdbcTemplate.queryForObject(
+            "SELECT NEXT VALUE FOR hibernate_sequence FROM (VALUES (0))", Integer.class);
+        // the pooled optimizer hands out the block that ends at the value it reads
+        assertThat(next - BaseEntity.ID_ALLOCATION_SIZE + 1).isGreaterThan(maxId);
+    }
+
+    private static DatasetProperties properties(long seed) {
+        DatasetProperties properties = new DatasetProperties();
+        properties.setSeed(seed);
+        properties.setOwners(2000);
+        properties.setVets(20);
+        properties.setBatchSize(500);
+        return properties;
+    }
+
+    private int count(String table) {
+        return this.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    private List<String> snapshot() {
+        return this.jdbcTemplate.queryForList("SELECT o.id || o.last_name || o.city || o.telephone || "
+            + "COALESCE(p.name || p.birth_date || p.type_id, '') || (SELECT COUNT(*) FROM visits v WHERE v.pet_id = p.id) "
+            + "FROM owners o LEFT JOIN pets p ON p.owner_id = o.id ORDER BY o.id, p.id", String.class);
+    }
+
+    private void deleteGenerated() {
+        this.jdbcTemplate.update("DELETE FROM visits WHERE id > 4");
+        this.jdbcTemplate.update("DELETE FROM pets WHERE id > 13");
+        this.jdbcTemplate.update("DELETE FROM owners WHERE id > 10");
+        this.jdbcTemplate.update("DELETE FROM vet_specialties WHERE vet_id > 6");
+        this.jdbcTemplate.update("DELETE FROM vets WHERE id > 6");
+    }
+
+}
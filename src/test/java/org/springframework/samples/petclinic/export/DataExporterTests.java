@@ -0,0 +1,76 @@
+package org.springframework.samples.petclinic.export;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Test class for {@link DataExporter}, against the seed data.
+ */
+@RunWith(SpringRunner.class)
+@JdbcTest
+@Import(DataExporter.class)
+public class DataExporterTests {
+
+    @Autowired
+    private DataExporter exporter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void shouldExportOwnersAsNdjson() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = this.exporter.export(DataExporter.Table.OWNERS, DataExporter.Format.NDJSON, false, out);
+
+        String[] lines = out.toString("UTF-8").split("\n");
+        assertThat(rows).isEqualTo(10);
+        assertThat(lines).hasSize(10);
+        assertThat(lines[0]).isEqualTo("{\"id\":1,\"first_name\":\"George\",\"last_name\":\"Franklin\","
+            + "\"address\":\"110 W. Liberty St.\",\"city\":\"Madison\",\"telephone\":\"6085551023\"}");
+    }
+
+    @Test
+    public void shouldExportPetsAsCsvWithTheirTypeName() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        this.exporter.export(DataExporter.Table.PETS, DataExporter.Format.CSV, false, out);
+
+        String[] lines = out.toString("UTF-8").split("\n");
+        assertThat(lines).hasSize(14);
+        assertThat(lines[0]).isEqualTo("id,name,birth_date,type,owner_id");
+        assertThat(lines[1]).isEqualTo("1,Leo,2010-09-07,cat,1");
+    }
+
+    @Test
+    public void shouldQuoteCsvFieldsWhereNeeded() throws IOException {
+        this.jdbcTemplate.update("UPDATE visits SET description = ? WHERE id = 1", "shots, \"rabies\"");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        this.exporter.export(DataExporter.Table.VISITS, DataExporter.Format.CSV, false, out);
+
+        assertThat(out.toString("UTF-8").split("\n")[1]).isEqualTo("1,7,2013-01-01,\"shots, \"\"rabies\"\"\"");
+    }
+
+    @Test
+    public void shouldGzipOnRequest() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        this.exporter.export(DataExporter.Table.VISITS, DataExporter.Format.NDJSON, true, out);
+
+        String unzipped = StreamUtils.copyToString(
+            new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())), StandardCharsets.UTF_8);
+        assertThat(unzipped.split("\n")).hasSize(4);
+    }
+
+}
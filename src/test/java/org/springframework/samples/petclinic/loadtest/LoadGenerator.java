@@ -0,0 +1,504 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.loadtest;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Drives a running application with the scenario of a front desk: welcome page, vets, find
+ * owners, search by last name, owner details, edit owner (form and submit) and add a visit (form
+ * and submit). Run it with
+ * <code>./mvnw -Ploadtest test-compile exec:exec -Dloadtest.args="--url=http://localhost:8080 --rate=50 --duration=120"</code>.
+ * <p>
+ * The workload is an open model: sessions arrive at <code>--rate</code> per second (Poisson
+ * arrivals by default, <code>--arrivals=constant</code> for a fixed interval) regardless of how
+ * fast the application answers, and each session runs the steps one after the other on a pool of
+ * <code>--threads</code> workers. Response times are measured from when a step was due to start,
+ * not from when a worker got round to it, so a slow application is not hidden by sessions
+ * queueing up in the client (coordinated omission). Service times, from the actual start, are
+ * recorded next to them; a growing gap between the two means the client or the server is
+ * saturated. Sessions that have not finished when the run is cut off, two minutes after the
+ * last arrival, count their remaining steps as errors with a response time up to the cut-off,
+ * so that an overloaded application cannot improve its percentiles by not answering.
+ * <p>
+ * The owners and pets are sampled, with <code>--seed</code>, from the application's own
+ * <code>/export</code> endpoints, so any data set works, e.g. one made by the
+ * <code>dataset</code> profile. Start the application with
+ * <code>--petclinic.export.web.enabled=true</code> for them. The owner edit posts the owner's current values back. Sessions
+ * started during the first <code>--warmup</code> seconds are not measured.
+ * <p>
+ * The {@link LoadReport}, with HdrHistogram percentiles and the encoded histograms per endpoint,
+ * is written as JSON to <code>--report</code>. With <code>--compare=&lt;earlier report&gt;</code>
+ * the percentiles are printed next to those of an earlier build.
+ */
+public class LoadGenerator {
+
+    /**
+     * The steps of a session, in order.
+     */
+    enum Endpoint {
+
+        WELCOME("welcome"),
+
+        VETS("vets"),
+
+        FIND_OWNERS("findOwners"),
+
+        SEARCH_OWNERS("searchOwners"),
+
+        OWNER_DETAILS("ownerDetails"),
+
+        EDIT_OWNER_FORM("editOwnerForm"),
+
+        EDIT_OWNER("editOwner"),
+
+        NEW_VISIT_FORM("newVisitForm"),
+
+        NEW_VISIT("newVisit");
+
+        private final String key;
+
+        Endpoint(String key) {
+            this.key = key;
+        }
+
+        String getKey() {
+            return this.key;
+        }
+
+    }
+
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final Options options;
+
+    private final Map<Endpoint, Stats> stats = new EnumMap<>(Endpoint.class);
+
+    private final AtomicLong sessions = new AtomicLong();
+
+    /**
+     * Measured sessions that have been scheduled but not finished yet.
+     */
+    private final Set<Session> open = ConcurrentHashMap.newKeySet();
+
+    public LoadGenerator(Options options) {
+        this.options = options;
+        for (Endpoint endpoint : Endpoint.values()) {
+            this.stats.put(endpoint, new Stats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        LoadReport report = new LoadGenerator(options).run();
+        Path file = Paths.get(options.report);
+        report.write(file);
+        System.out.println(report.format());
+        System.out.println("Report written to " + file.toAbsolutePath());
+        if (options.compare != null) {
+            System.out.println(report.compare(LoadReport.read(Paths.get(options.compare))));
+        }
+    }
+
+    public LoadReport run() throws IOException, InterruptedException {
+        // keep a pooled connection per worker instead of the default five
+        System.setProperty("http.maxConnections", Integer.toString(this.options.threads));
+        Random random = new Random(this.options.seed);
+        List<Target> targets = sampleTargets(random);
+        ExecutorService workers = Executors.newFixedThreadPool(this.options.threads);
+        long start = System.nanoTime();
+        long measureFrom = start + seconds(this.options.warmup);
+        long end = measureFrom + seconds(this.options.duration);
+        double meanInterval = TimeUnit.SECONDS.toNanos(1) / this.options.rate;
+        long next = start;
+        while (next < end) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Session session = new Session(next, next >= measureFrom, targets.get(random.nextInt(targets.size())));
+            if (session.measured) {
+                this.sessions.incrementAndGet();
+                this.open.add(session);
+            }
+            workers.execute(() -> runSession(session));
+            next += this.options.poisson ? (long) (-Math.log(1 - random.nextDouble()) * meanInterval) : (long) meanInterval;
+        }
+        workers.shutdown();
+        if (!workers.awaitTermination(2, TimeUnit.MINUTES)) {
+            workers.shutdownNow();
+        }
+        long cutOff = System.nanoTime();
+        this.open.forEach(session -> session.cutOff(cutOff));
+        return LoadReport.of(this.options, this.sessions.get(), this.stats, TimeUnit.NANOSECONDS.toMillis(end - measureFrom));
+    }
+
+    private void runSession(Session session) {
+        for (Endpoint endpoint : Endpoint.values()) {
+            long started = System.nanoTime();
+            boolean ok;
+            try {
+                int status = execute(endpoint, session.target);
+                // the form submits and a search with a single match redirect
+                ok = status < 400;
+            } catch (IOException ex) {
+                ok = false;
+            }
+            if (!session.completed(endpoint, started, System.nanoTime(), ok)) {
+                return;
+            }
+        }
+        this.open.remove(session);
+    }
+
+    private int execute(Endpoint endpoint, Target target) throws IOException {
+        String owner = "/owners/" + target.ownerId;
+        switch (endpoint) {
+            case WELCOME:
+                return request("GET", "/", null);
+            case VETS:
+                return request("GET", "/vets.html", null);
+            case FIND_OWNERS:
+                return request("GET", "/owners/find", null);
+            case SEARCH_OWNERS:
+                return request("GET", "/owners?lastName=" + encode(target.lastName), null);
+            case OWNER_DETAILS:
+                return request("GET", owner, null);
+            case EDIT_OWNER_FORM:
+                return request("GET", owner + "/edit", null);
+            case EDIT_OWNER:
+                return request("POST", owner + "/edit", target.ownerForm);
+            case NEW_VISIT_FORM:
+                return request("GET", owner + "/pets/" + target.petId + "/visits/new", null);
+            case NEW_VISIT:
+                return request("POST", owner + "/pets/" + target.petId + "/visits/new",
+                    "date=" + LocalDate.now() + "&description=" + encode("load test"));
+            default:
+                throw new IllegalStateException(endpoint.name());
+        }
+    }
+
+    private int request(String method, String path, String form) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(this.options.url + path).openConnection();
+        connection.setInstanceFollowRedirects(false);
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(30000);
+        connection.setRequestMethod(method);
+        if (form != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(form.getBytes(UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        // read the whole body so that the connection goes back to the pool
+        try (InputStream body = status >= 400 ? connection.getErrorStream() : connection.getInputStream()) {
+            if (body != null) {
+                byte[] buffer = new byte[8192];
+                while (body.read(buffer) >= 0) {
+                    // discard
+                }
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Pick <code>--sample</code> pets at random from <code>/export/pets</code> (reservoir
+     * sampling, so the export is streamed) and look up their owners in <code>/export/owners</code>.
+     */
+    private List<Target> sampleTargets(Random random) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        List<int[]> pets = new ArrayList<>(this.options.sample);
+        long seen = 0;
+        try (BufferedReader lines = export("pets")) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                JsonNode pet = mapper.readTree(line);
+                int[] ids = { pet.get("id").asInt(), pet.get("owner_id").asInt() };
+                seen++;
+                if (pets.size() < this.options.sample) {
+                    pets.add(ids);
+                } else {
+                    long slot = (long) (random.nextDouble() * seen);
+                    if (slot < this.options.sample) {
+                        pets.set((int) slot, ids);
+                    }
+                }
+            }
+        }
+        if (pets.isEmpty()) {
+            throw new IllegalStateException("There are no pets to visit at " + this.options.url);
+        }
+        Map<Integer, JsonNode> owners = new HashMap<>();
+        pets.forEach(ids -> owners.put(ids[1], null));
+        try (BufferedReader lines = export("owners")) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                JsonNode owner = mapper.readTree(line);
+                int id = owner.get("id").asInt();
+                if (owners.containsKey(id)) {
+                    owners.put(id, owner);
+                }
+            }
+        }
+        List<Target> targets = new ArrayList<>(pets.size());
+        for (int[] ids : pets) {
+            targets.add(new Target(ids[0], owners.get(ids[1])));
+        }
+        return targets;
+    }
+
+    private BufferedReader export(String table) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(
+            this.options.url + "/export/" + table + "?format=ndjson").openConnection();
+        return new BufferedReader(new InputStreamReader(connection.getInputStream(), UTF_8));
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static long seconds(double seconds) {
+        return (long) (seconds * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * A pet to visit, with the owner whose pages are shown.
+     */
+    private static final class Target {
+
+        private final int petId;
+
+        private final int ownerId;
+
+        private final String lastName;
+
+        private final String ownerForm;
+
+        Target(int petId, JsonNode owner) {
+            this.petId = petId;
+            this.ownerId = owner.get("id").asInt();
+            this.lastName = owner.get("last_name").asText();
+            this.ownerForm = "firstName=" + encode(owner.get("first_name").asText())
+                + "&lastName=" + encode(this.lastName)
+                + "&address=" + encode(owner.get("address").asText())
+                + "&city=" + encode(owner.get("city").asText())
+                + "&telephone=" + encode(owner.get("telephone").asText());
+        }
+
+    }
+
+    /**
+     * One run through the steps, recorded step by step unless it has been cut off.
+     */
+    private final class Session {
+
+        private final boolean measured;
+
+        private final Target target;
+
+        /**
+         * When the next step was due, guarded by <code>this</code>.
+         */
+        private long stepDue;
+
+        /**
+         * The next step to record, guarded by <code>this</code>.
+         */
+        private int step;
+
+        private boolean cutOff;
+
+        Session(long due, boolean measured, Target target) {
+            this.stepDue = due;
+            this.measured = measured;
+            this.target = target;
+        }
+
+        /**
+         * @return false if the session was cut off and should not go on
+         */
+        synchronized boolean completed(Endpoint endpoint, long started, long finished, boolean ok) {
+            if (this.cutOff) {
+                return false;
+            }
+            if (this.measured) {
+                LoadGenerator.this.stats.get(endpoint).record(this.stepDue, started, finished, ok);
+            }
+            this.stepDue = finished;
+            this.step++;
+            return true;
+        }
+
+        /**
+         * Count the steps not recorded yet as errors that took until the cut-off.
+         */
+        synchronized void cutOff(long cutOff) {
+            this.cutOff = true;
+            Endpoint[] endpoints = Endpoint.values();
+            for (int i = this.step; i < endpoints.length; i++) {
+                LoadGenerator.this.stats.get(endpoints[i]).cutOff(this.stepDue, cutOff);
+            }
+        }
+
+    }
+
+    /**
+     * Latencies of one endpoint, in microseconds.
+     */
+    static final class Stats {
+
+        final Histogram responseTimes = new ConcurrentHistogram(HIGHEST_MICROS, 3);
+
+        final Histogram serviceTimes = new ConcurrentHistogram(HIGHEST_MICROS, 3);
+
+        final AtomicLong errors = new AtomicLong();
+
+        void record(long due, long started, long finished, boolean ok) {
+            this.responseTimes.recordValue(Math.min(HIGHEST_MICROS, TimeUnit.NANOSECONDS.toMicros(finished - due)));
+            this.serviceTimes.recordValue(Math.min(HIGHEST_MICROS, TimeUnit.NANOSECONDS.toMicros(finished - started)));
+            if (!ok) {
+                this.errors.incrementAndGet();
+            }
+        }
+
+        /**
+         * A request that had not finished at the cut-off; it has no service time.
+         */
+        void cutOff(long due, long cutOff) {
+            this.responseTimes.recordValue(Math.min(HIGHEST_MICROS, TimeUnit.NANOSECONDS.toMicros(cutOff - due)));
+            this.errors.incrementAndGet();
+        }
+
+    }
+
+    /**
+     * Command line options, given as <code>--name=value</code>.
+     */
+    public static final class Options {
+
+        String url = "http://localhost:8080";
+
+        /**
+         * Sessions started per second.
+         */
+        double rate = 20;
+
+        double duration = 60;
+
+        double warmup = 10;
+
+        int threads = 200;
+
+        boolean poisson = true;
+
+        long seed = 42;
+
+        /**
+         * Number of pets (and their owners) the sessions are spread over.
+         */
+        int sample = 1000;
+
+        String report = "target/loadtest/report.json";
+
+        String compare;
+
+        public static Options parse(String... args) {
+            Options options = new Options();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                    throw new IllegalArgumentException("Expected --name=value but got " + arg);
+                }
+                String name = arg.substring(2, arg.indexOf('='));
+                String value = arg.substring(arg.indexOf('=') + 1);
+                switch (name) {
+                    case "url":
+                        options.url = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                        break;
+                    case "rate":
+                        options.rate = Double.parseDouble(value);
+                        break;
+                    case "duration":
+                        options.duration = Double.parseDouble(value);
+                        break;
+                    case "warmup":
+                        options.warmup = Double.parseDouble(value);
+                        break;
+                    case "threads":
+                        options.threads = Integer.parseInt(value);
+                        break;
+                    case "arrivals":
+                        options.poisson = !"constant".equals(value);
+                        break;
+                    case "seed":
+                        options.seed = Long.parseLong(value);
+                        break;
+                    case "sample":
+                        options.sample = Integer.parseInt(value);
+                        break;
+                    case "report":
+                        options.report = value;
+                        break;
+                    case "compare":
+                        options.compare = value;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option --" + name);
+                }
+            }
+            return options;
+        }
+
+    }
+
+}
@@ -0,0 +1,55 @@
+package org.springframework.samples.petclinic.loadtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Runs a short {@link LoadGenerator} session against the application, so that the scenario's
+ * URLs and forms keep up with the controllers.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = { "spring.cache.type=none",
+    "petclinic.export.web.enabled=true" })
+@DirtiesContext
+public class LoadGeneratorTests {
+
+    @LocalServerPort
+    private int port;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldRunTheScenarioWithoutErrors() throws Exception {
+        Path file = this.folder.getRoot().toPath().resolve("report.json");
+        LoadGenerator.Options options = LoadGenerator.Options.parse("--url=http://localhost:" + this.port,
+            "--rate=10", "--warmup=0.5", "--duration=2", "--threads=4", "--sample=5", "--report=" + file);
+
+        LoadReport report = new LoadGenerator(options).run();
+        report.write(file);
+        LoadReport read = LoadReport.read(file);
+
+        assertThat(read.sessions).isGreaterThan(5);
+        assertThat(read.endpoints).hasSize(LoadGenerator.Endpoint.values().length);
+        read.endpoints.forEach((name, endpoint) -> {
+            assertThat(endpoint.requests).as(name).isEqualTo(read.sessions);
+            assertThat(endpoint.errors).as(name).isZero();
+            assertThat(endpoint.responseTime.p99).as(name).isGreaterThanOrEqualTo(endpoint.serviceTime.p50);
+        });
+        LoadReport.EndpointReport visits = read.endpoints.get("newVisit");
+        assertThat(visits.decodeResponseTimes().getTotalCount()).isEqualTo(visits.requests);
+        assertThat(report.compare(read)).contains("newVisit");
+    }
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.loadtest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+/**
+ * The JSON result of a {@link LoadGenerator} run: the settings, and per endpoint the request
+ * count, errors, throughput and response and service time percentiles in milliseconds. The full
+ * response time histogram (microseconds) is included in HdrHistogram's compressed, Base64
+ * encoded form, so that runs can be merged or plotted later.
+ */
+public class LoadReport {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    public String finishedAt;
+
+    public String url;
+
+    public double rate;
+
+    public String arrivals;
+
+    public double warmupSeconds;
+
+    public double durationSeconds;
+
+    public int threads;
+
+    public long seed;
+
+    public long sessions;
+
+    public Map<String, EndpointReport> endpoints = new LinkedHashMap<>();
+
+    static LoadReport of(LoadGenerator.Options options, long sessions, Map<LoadGenerator.Endpoint, LoadGenerator.Stats> stats,
+                         long measuredMillis) {
+        LoadReport report = new LoadReport();
+        report.finishedAt = Instant.now().toString();
+        report.url = options.url;
+        report.rate = options.rate;
+        report.arrivals = options.poisson ? "poisson" : "constant";
+        report.warmupSeconds = options.warmup;
+        report.durationSeconds = options.duration;
+        report.threads = options.threads;
+        report.seed = options.seed;
+        report.sessions = sessions;
+        stats.forEach((endpoint, endpointStats) -> report.endpoints.put(endpoint.getKey(),
+            EndpointReport.of(endpointStats, measuredMillis)));
+        return report;
+    }
+
+    public static LoadReport read(Path file) throws IOException {
+        return MAPPER.readValue(file.toFile(), LoadReport.class);
+    }
+
+    public void write(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        MAPPER.writeValue(file.toFile(), this);
+    }
+
+    String format() {
+        StringBuilder text = new StringBuilder(String.format("%d sessions at %.1f/s (%s), %d threads%n",
+            this.sessions, this.rate, this.arrivals, this.threads));
+        text.append(String.format("%-14s %8s %7s %8s %9s %9s %9s %9s %9s%n", "endpoint", "requests", "errors",
+            "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        this.endpoints.forEach((name, endpoint) -> text.append(String.format(
+            "%-14s %8d %7d %8.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, endpoint.requests, endpoint.errors,
+            endpoint.requestsPerSecond, endpoint.responseTime.p50, endpoint.responseTime.p90, endpoint.responseTime.p99,
+            endpoint.responseTime.p999, endpoint.responseTime.max)));
+        return text.toString();
+    }
+
+    /**
+     * @return the response time percentiles of both reports side by side, with the change
+     */
+    String compare(LoadReport baseline) {
+        StringBuilder text = new StringBuilder(String.format("Compared with the run finished at %s (%.1f/s):%n",
+            baseline.finishedAt, baseline.rate));
+        text.append(String.format("%-14s %28s %28s %28s%n", "endpoint", "p50 ms", "p99 ms", "p99.9 ms"));
+        this.endpoints.forEach((name, endpoint) -> {
+            EndpointReport before = baseline.endpoints.get(name);
+            if (before != null) {
+                text.append(String.format("%-14s %28s %28s %28s%n", name,
+                    change(before.responseTime.p50, endpoint.responseTime.p50),
+                    change(before.responseTime.p99, endpoint.responseTime.p99),
+                    change(before.responseTime.p999, endpoint.responseTime.p999)));
+            }
+        });
+        return text.toString();
+    }
+
+    private static String change(double before, double after) {
+        String percent = before == 0 ? "" : String.format(" (%+.0f%%)", (after - before) * 100 / before);
+        return String.format("%.2f -> %.2f%s", before, after, percent);
+    }
+
+    public static class EndpointReport {
+
+        public long requests;
+
+        public long errors;
+
+        public double requestsPerSecond;
+
+        /**
+         * From when the request was due, including any time it waited for a worker.
+         */
+        public Percentiles responseTime;
+
+        /**
+         * From when the request was actually sent.
+         */
+        public Percentiles serviceTime;
+
+        public String responseTimeHistogram;
+
+        static EndpointReport of(LoadGenerator.Stats stats, long measuredMillis) {
+            Histogram responseTimes = stats.responseTimes;
+            Histogram serviceTimes = stats.serviceTimes;
+            EndpointReport report = new EndpointReport();
+            report.requests = responseTimes.getTotalCount();
+            report.errors = stats.errors.get();
+            report.requestsPerSecond = measuredMillis == 0 ? 0 : report.requests * 1000.0 / measuredMillis;
+            report.responseTime = Percentiles.of(responseTimes);
+            report.serviceTime = Percentiles.of(serviceTimes);
+            ByteBuffer buffer = ByteBuffer.allocate(responseTimes.getNeededByteBufferCapacity());
+            int length = responseTimes.encodeIntoCompressedByteBuffer(buffer);
+            report.responseTimeHistogram = Base64.getEncoder().encodeToString(
+                Arrays.copyOf(buffer.array(), length));
+            return report;
+        }
+
+        Histogram decodeResponseTimes() throws DataFormatException {
+            return Histogram.decodeFromCompressedByteBuffer(
+                ByteBuffer.wrap(Base64.getDecoder().decode(this.responseTimeHistogram)), 0);
+        }
+
+    }
+
+    public static class Percentiles {
+
+        public double mean;
+
+        public double p50;
+
+        public double p90;
+
+        public double p99;
+
+        public double p999;
+
+        public double max;
+
+        static Percentiles of(Histogram micros) {
+            Percentiles percentiles = new Percentiles();
+            percentiles.mean = millis(micros.getMean());
+            percentiles.p50 = millis(micros.getValueAtPercentile(50));
+            percentiles.p90 = millis(micros.getValueAtPercentile(90));
+            percentiles.p99 = millis(micros.getValueAtPercentile(99));
+            percentiles.p999 = millis(micros.getValueAtPercentile(99.9));
+            percentiles.max = millis(micros.getMaxValue());
+            return percentiles;
+        }
+
+        private static double millis(double micros) {
+            return micros / TimeUnit.MILLISECONDS.toMicros(1);
+        }
+
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.samples.petclinic.PetClinicApplication;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Measures how many owner, pet and visit rows per second a single transaction can insert
+ * through {@link OwnerRepository#save(Owner)}, with ids from <code>IDENTITY</code> columns
+ * (<code>ids=identity</code>, one insert per row as each id is read back) and from the pooled
+ * sequence (<code>ids=sequence</code>, inserts sent in JDBC batches of the configured size). Every
+ * invocation creates {@value #OWNERS} owners with {@value #PETS_PER_OWNER} pets and
+ * {@value #VISITS_PER_PET} visits each, so the score is in rows per second.
+ * <p>
+ * Run with <code>./mvnw -Pbenchmark test-compile exec:exec -Dbenchmark=BulkInsertBenchmark</code>
+ * against the embedded HSQLDB, or add <code>-p profile=mysql</code> to <code>benchmark.args</code>
+ * to insert into the MySQL database of the <code>mysql</code> profile. HSQLDB runs in process,
+ * with no round trip for batching to save, so only the MySQL figures say what batching is worth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkInsertBenchmark {
+
+    private static final int OWNERS = 50;
+
+    private static final int PETS_PER_OWNER = 2;
+
+    private static final int VISITS_PER_PET = 3;
+
+    private static final int ROWS = OWNERS * (1 + PETS_PER_OWNER * (1 + VISITS_PER_PET));
+
+    private static final String IDENTITY_MAPPING = "org/springframework/samples/petclinic/owner/BulkInsertBenchmark-identity.xml";
+
+    @Param({ "identity", "sequence" })
+    private String ids;
+
+    @Param({ "" })
+    private String profile;
+
+    private ConfigurableApplicationContext context;
+
+    private OwnerRepository owners;
+
+    private TransactionTemplate transactions;
+
+    private PetType type;
+
+    @Setup
+    public void setup() {
+        SpringApplicationBuilder application = new SpringApplicationBuilder(PetClinicApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties("spring.profiles.active=" + this.profile, "logging.level.root=WARN");
+        if ("identity".equals(this.ids)) {
+            application.properties("spring.jpa.mapping-resources=" + IDENTITY_MAPPING);
+        }
+        this.context = application.run();
+        this.owners = this.context.getBean(OwnerRepository.class);
+        this.transactions = new TransactionTemplate(this.context.getBean(PlatformTransactionManager.class));
+        this.type = this.context.getBean(PetRepository.class).findPetTypes().get(0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public Collection<Owner> insert() {
+        return this.transactions.execute(status -> {
+            List<Owner> saved = new ArrayList<>(OWNERS);
+            for (int i = 0; i < OWNERS; i++) {
+                Owner owner = createOwner(i);
+                this.owners.save(owner);
+                // pet ids are only known once the owner has been persisted
+                for (Pet pet : owner.getPetsInternal()) {
+                    for (int j = 0; j < VISITS_PER_PET; j++) {
+                        Visit visit = new Visit();
+                        visit.setDescription("check up " + j);
+                        pet.addVisit(visit);
+                    }
+                }
+                saved.add(owner);
+            }
+            return saved;
+        });
+    }
+
+    private Owner createOwner(int i) {
+        Owner owner = new Owner();
+        owner.setFirstName("Bench");
+        owner.setLastName("Mark" + i);
+        owner.setAddress("1 Batch Street");
+        owner.setCity("Insertville");
+        owner.setTelephone("0123456789");
+        for (int j = 0; j < PETS_PER_OWNER; j++) {
+            Pet pet = new Pet();
+            pet.setName("pet" + j);
+            pet.setBirthDate(new Date());
+            pet.setType(this.type);
+            owner.addPet(pet);
+        }
+        return owner;
+    }
+
+}
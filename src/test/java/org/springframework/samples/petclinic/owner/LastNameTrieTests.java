@@ -0,0 +1,60 @@
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for {@link LastNameTrie}
+ */
+public class LastNameTrieTests {
+
+    private LastNameTrie trie;
+
+    @Before
+    public void setup() {
+        this.trie = new LastNameTrie();
+        this.trie.addWithoutRefresh("davis", "Davis");
+        this.trie.addWithoutRefresh("davis", "Davis");
+        this.trie.addWithoutRefresh("dawson", "Dawson");
+        this.trie.addWithoutRefresh("franklin", "Franklin");
+        this.trie.refreshAll();
+    }
+
+    @Test
+    public void shouldCompleteMostCommonFirst() {
+        assertThat(this.trie.complete("da", 10)).extracting(LastNameTrie.Suggestion::getLastName)
+            .containsExactly("Davis", "Dawson");
+        assertThat(this.trie.complete("da", 10)).extracting(LastNameTrie.Suggestion::getCount)
+            .containsExactly(2, 1);
+        assertThat(this.trie.complete("", 1)).extracting(LastNameTrie.Suggestion::getLastName)
+            .containsExactly("Davis");
+        assertThat(this.trie.complete("davis", 10)).hasSize(1);
+        assertThat(this.trie.complete("x", 10)).isEmpty();
+    }
+
+    @Test
+    public void shouldUpdateCountsIncrementally() {
+        this.trie.add("dawson", "Dawson");
+        this.trie.add("dawson", "Dawson");
+        this.trie.remove("davis");
+        assertThat(this.trie.complete("d", 10)).extracting(LastNameTrie.Suggestion::getLastName)
+            .containsExactly("Dawson", "Davis");
+        assertThat(this.trie.complete("d", 10)).extracting(LastNameTrie.Suggestion::getCount)
+            .containsExactly(3, 1);
+
+        this.trie.remove("davis");
+        this.trie.remove("unknown");
+        assertThat(this.trie.complete("dav", 10)).isEmpty();
+    }
+
+    @Test
+    public void shouldKeepOnlyTheTopNamesPerPrefix() {
+        for (int i = 0; i < LastNameTrie.TOP + 5; i++) {
+            this.trie.add("smith" + (char) ('a' + i), "Smith" + (char) ('a' + i));
+        }
+        assertThat(this.trie.complete("smith", 100)).hasSize(LastNameTrie.TOP);
+    }
+
+}
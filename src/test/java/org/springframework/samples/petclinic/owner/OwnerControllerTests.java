@@ -1,14 +1,30 @@
 package org.springframework.samples.petclinic.owner;
 
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.assertj.core.util.Lists;
 import org.junit.Before;
 import org.junit.Test;
@@ -16,6 +32,9 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.samples.petclinic.owner.Owner;
 import org.springframework.samples.petclinic.owner.OwnerController;
 import org.springframework.samples.petclinic.owner.OwnerRepository;
@@ -39,8 +58,13 @@ public class OwnerControllerTests {
     @MockBean
     private OwnerRepository owners;
 
+    @MockBean
+    private OwnerSearchIndex searchIndex;
+
     private Owner george;
 
+    private final ProjectionFactory projections = new SpelAwareProxyProjectionFactory();
+
     @Before
     public void setup() {
         george = new Owner();
@@ -50,7 +74,15 @@ public class OwnerControllerTests {
         george.setAddress("110 W. Liberty St.");
         george.setCity("Madison");
         george.setTelephone("6085551023");
-        given(this.owners.findById(TEST_OWNER_ID)).willReturn(george);
+        given(this.owners.findDetailsById(TEST_OWNER_ID)).willReturn(new OwnerDetails(george));
+        given(this.owners.findWithoutPetsById(TEST_OWNER_ID)).willReturn(george);
+    }
+
+    private OwnerSummary summary(int id, String lastName) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", id);
+        row.put("lastName", lastName);
+        return this.projections.createProjection(OwnerSummary.class, row);
     }
 
     @Test
@@ -97,15 +129,19 @@ public class OwnerControllerTests {
 
     @Test
     public void testProcessFindFormSuccess() throws Exception {
-        given(this.owners.findByLastName("")).willReturn(Lists.newArrayList(george, new Owner()));
+        given(this.owners.findByLastNameAfter(eq(""), eq(""), eq(0), anyInt()))
+            .willReturn(Lists.newArrayList(summary(1, "Franklin"), summary(2, "Davis")));
         mockMvc.perform(get("/owners"))
             .andExpect(status().isOk())
+            .andExpect(model().attribute("previousCursor", nullValue()))
+            .andExpect(model().attribute("nextCursor", nullValue()))
             .andExpect(view().name("owners/ownersList"));
     }
 
     @Test
     public void testProcessFindFormByLastName() throws Exception {
-        given(this.owners.findByLastName(george.getLastName())).willReturn(Lists.newArrayList(george));
+        given(this.owners.findByLastNameAfter(eq("Franklin"), eq(""), eq(0), anyInt()))
+            .willReturn(Lists.newArrayList(summary(1, "Franklin")));
         mockMvc.perform(get("/owners")
             .param("lastName", "Franklin")
         )
@@ -113,6 +149,78 @@ public class OwnerControllerTests {
             .andExpect(view().name("redirect:/owners/" + TEST_OWNER_ID));
     }
 
+    @Test
+    public void testProcessFindFormFirstPage() throws Exception {
+        given(this.owners.findByLastNameAfter(eq(""), eq(""), eq(0), anyInt()))
+            .willReturn(Lists.newArrayList(summary(1, "Franklin"), summary(2, "Davis"), summary(3, "Escobito")));
+        mockMvc.perform(get("/owners")
+            .param("size", "2")
+        )
+            .andExpect(status().isOk())
+            .andExpect(model().attribute("selections", hasSize(2)))
+            .andExpect(model().attribute("previousCursor", nullValue()))
+            .andExpect(model().attribute("nextCursor", is("2:Davis")))
+            .andExpect(view().name("owners/ownersList"));
+    }
+
+    @Test
+    public void testProcessFindFormNextPage() throws Exception {
+        given(this.owners.findByLastNameAfter(eq(""), eq("Davis"), eq(2), anyInt()))
+            .willReturn(Lists.newArrayList(summary(3, "Escobito")));
+        mockMvc.perform(get("/owners")
+            .param("size", "2")
+            .param("after", "2:Davis")
+        )
+            .andExpect(status().isOk())
+            .andExpect(model().attribute("selections", hasSize(1)))
+            .andExpect(model().attribute("previousCursor", is("3:Escobito")))
+            .andExpect(model().attribute("nextCursor", nullValue()))
+            .andExpect(view().name("owners/ownersList"));
+    }
+
+    @Test
+    public void testProcessFindFormPreviousPage() throws Exception {
+        given(this.owners.findByLastNameBefore(eq(""), eq("Escobito"), eq(3), anyInt()))
+            .willReturn(Lists.newArrayList(summary(2, "Davis"), summary(1, "Franklin")));
+        mockMvc.perform(get("/owners")
+            .param("size", "2")
+            .param("before", "3:Escobito")
+        )
+            .andExpect(status().isOk())
+            .andExpect(model().attribute("selections", hasSize(2)))
+            .andExpect(model().attribute("previousCursor", nullValue()))
+            .andExpect(model().attribute("nextCursor", is("2:Davis")))
+            .andExpect(view().name("owners/ownersList"));
+    }
+
+    @Test
+    public void testProcessFindFormFromSearchIndex() throws Exception {
+        given(this.searchIndex.isReady()).willReturn(true);
+        given(this.searchIndex.findAfter(eq("madi"), isNull(), anyInt())).willReturn(Arrays.asList(2, 1));
+        given(this.owners.findSummariesByIds(Arrays.asList(2, 1)))
+            .willReturn(Lists.newArrayList(summary(1, "Franklin"), summary(2, "Davis")));
+        mockMvc.perform(get("/owners")
+            .param("lastName", "madi")
+        )
+            .andExpect(status().isOk())
+            .andExpect(model().attribute("selections", contains(hasProperty("id", is(2)), hasProperty("id", is(1)))))
+            .andExpect(view().name("owners/ownersList"));
+        verify(this.owners, never()).findByLastNameAfter(any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testSuggestLastNames() throws Exception {
+        given(this.searchIndex.suggestLastNames("da", 8))
+            .willReturn(Collections.singletonList(new LastNameTrie.Suggestion("Davis", 2)));
+        mockMvc.perform(get("/owners/suggestions")
+            .param("prefix", "da")
+        )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].lastName").value("Davis"))
+            .andExpect(jsonPath("$[0].count").value(2));
+        verify(this.owners, never()).findByLastNameAfter(any(), any(), anyInt(), anyInt());
+    }
+
     @Test
     public void testProcessFindFormNoOwnersFound() throws Exception {
         mockMvc.perform(get("/owners")
@@ -176,4 +284,23 @@ public class OwnerControllerTests {
             .andExpect(view().name("owners/ownerDetails"));
     }
 
+    @Test
+    public void testShowOwnerTaggedWithVersion() throws Exception {
+        given(this.owners.findVersionById(TEST_OWNER_ID)).willReturn(3);
+        mockMvc.perform(get("/owners/{ownerId}", TEST_OWNER_ID))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "W/\"owner-1-3\""))
+            .andExpect(view().name("owners/ownerDetails"));
+    }
+
+    @Test
+    public void testShowOwnerNotModified() throws Exception {
+        given(this.owners.findVersionById(TEST_OWNER_ID)).willReturn(3);
+        mockMvc.perform(get("/owners/{ownerId}", TEST_OWNER_ID)
+            .header(HttpHeaders.IF_NONE_MATCH, "W/\"owner-1-3\"")
+        )
+            .andExpect(status().isNotModified());
+        verify(this.owners, never()).findDetailsById(TEST_OWNER_ID);
+    }
+
 }
@@ -0,0 +1,153 @@
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Test class for {@link OwnerCsvImporter}. The importer commits its own transactions, so the
+ * tests do not run in one and each gets a fresh database.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@TestPropertySource(properties = { "petclinic.import.chunk-size=2", "petclinic.import.threads=3" })
+@ImportAutoConfiguration(ValidationAutoConfiguration.class)
+@Import({ OwnerCsvImporter.class, PetTypeRegistry.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class OwnerCsvImporterTests {
+
+    private static final String HEADER = "owner_id,last_name,first_name,address,city,telephone,pet_name,pet_birth_date,pet_type";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Autowired
+    private OwnerCsvImporter importer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void shouldImportOwnersWithTheirPets() throws IOException {
+        Path file = write(HEADER,
+            "a1,Imported,Anna,\"1 Main St, Apt 2\",Madison,6085550001,Rex,2015-03-01,dog",
+            "a1,,,,,,Tom,2016-04-02,Cat",
+            "a2,Imported,Bob,2 Main St,Madison,6085550002,,,",
+            "a3,Imported,Carl,3 Main St,Madison,not-a-number,Max,2015-03-01,dog",
+            "a3,,,,,,Mia,2015-03-01,cat",
+            "",
+            "a4,Imported,Dora,4 Main St,Madison,6085550004,Nemo,2017-05-03,fish",
+            "a4,,,,,,Kiki,2017-05-03,bird",
+            "a4,,,,,,Kiki,2018-05-03,bird");
+        List<OwnerImportReport> progress = new ArrayList<>();
+
+        OwnerImportReport report = this.importer.importOwners(file, progress::add);
+
+        assertThat(report.getOwners()).isEqualTo(3);
+        assertThat(report.getPets()).isEqualTo(3);
+        assertThat(report.getImportedRows()).isEqualTo(4);
+        assertThat(report.getRejectedRows()).isEqualTo(4);
+        assertThat(report.getChunks()).isEqualTo(2);
+        assertThat(progress).hasSize(2);
+        assertThat(this.jdbcTemplate.queryForList(
+            "SELECT o.first_name || ':' || p.name || ':' || t.name FROM owners o JOIN pets p ON p.owner_id = o.id "
+                + "JOIN types t ON t.id = p.type_id WHERE o.last_name = 'Imported' ORDER BY 1", String.class))
+            .containsExactly("Anna:Rex:dog", "Anna:Tom:cat", "Dora:Kiki:bird");
+        assertThat(this.jdbcTemplate.queryForObject("SELECT address FROM owners WHERE first_name = 'Anna'", String.class))
+            .isEqualTo("1 Main St, Apt 2");
+        assertThat(this.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM owners WHERE first_name = 'Bob'", Integer.class))
+            .isEqualTo(1);
+
+        List<String> rejected = Files.readAllLines(sibling(file, OwnerCsvImporter.REJECTED_SUFFIX));
+        assertThat(rejected).hasSize(4);
+        assertThat(rejected.get(0)).startsWith("5,\"telephone: ").endsWith(",a3,Imported,Carl,3 Main St,Madison,not-a-number,Max,2015-03-01,dog");
+        assertThat(rejected.get(1)).startsWith("6,\"telephone: ");
+        assertThat(rejected.get(2)).isEqualTo("8,\"type: unknown pet type: fish\",a4,Imported,Dora,4 Main St,Madison,6085550004,Nemo,2017-05-03,fish");
+        assertThat(rejected.get(3)).isEqualTo("10,\"name: already exists\",a4,,,,,,Kiki,2018-05-03,bird");
+        assertThat(checkpoint(file)).isEqualTo("10");
+    }
+
+    @Test
+    public void shouldResumeAfterTheCheckpoint() throws IOException {
+        Path file = write("first_name,last_name,address,city,telephone",
+            "One,Resumed,1 Main St,Madison,6085550001",
+            "Two,Resumed,2 Main St,Madison,6085550002",
+            "Three,Resumed,3 Main St,Madison,6085550003",
+            "Four,Resumed,4 Main St,Madison,6085550004",
+            "Five,Resumed,5 Main St,Madison,6085550005");
+        Files.write(sibling(file, OwnerCsvImporter.CHECKPOINT_SUFFIX), Collections.singleton("3"));
+
+        OwnerImportReport report = this.importer.importOwners(file, progress -> { });
+
+        assertThat(report.getSkippedRows()).isEqualTo(2);
+        assertThat(report.getOwners()).isEqualTo(3);
+        assertThat(this.jdbcTemplate.queryForList("SELECT first_name FROM owners WHERE last_name = 'Resumed' ORDER BY id",
+            String.class)).containsExactly("Three", "Four", "Five");
+        assertThat(checkpoint(file)).isEqualTo("6");
+
+        OwnerImportReport again = this.importer.importOwners(file, progress -> { });
+        assertThat(again.getSkippedRows()).isEqualTo(5);
+        assertThat(again.getOwners()).isZero();
+    }
+
+    @Test
+    public void shouldOnlyRejectTheOwnersThatDoNotSave() throws IOException {
+        Path file = write("first_name,last_name,address,city,telephone",
+            "Short,Saved,1 Main St,Madison,6085550001",
+            "Far too long a first name for its column,Saved,2 Main St,Madison,6085550002");
+
+        OwnerImportReport report = this.importer.importOwners(file, progress -> { });
+
+        assertThat(report.getOwners()).isEqualTo(1);
+        assertThat(report.getRejectedRows()).isEqualTo(1);
+        assertThat(this.jdbcTemplate.queryForList("SELECT first_name FROM owners WHERE last_name = 'Saved'", String.class))
+            .containsExactly("Short");
+        assertThat(Files.readAllLines(sibling(file, OwnerCsvImporter.REJECTED_SUFFIX))).hasSize(1)
+            .allMatch(line -> line.startsWith("3,"));
+    }
+
+    @Test
+    public void shouldParseQuotedFields() {
+        assertThat(OwnerCsvImporter.parseLine("a,\"b, c\",\"say \"\"hi\"\"\",,"))
+            .containsExactly("a", "b, c", "say \"hi\"", "", "");
+    }
+
+    private Path write(String... lines) throws IOException {
+        Path file = this.folder.newFile("owners.csv").toPath();
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static Path sibling(Path file, String suffix) {
+        return OwnerCsvImporter.sibling(file, suffix);
+    }
+
+    private static String checkpoint(Path file) throws IOException {
+        return new String(Files.readAllBytes(sibling(file, OwnerCsvImporter.CHECKPOINT_SUFFIX)), StandardCharsets.UTF_8).trim();
+    }
+
+}
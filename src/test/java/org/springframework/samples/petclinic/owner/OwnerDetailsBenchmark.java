@@ -0,0 +1,125 @@
+/*
+ * Copyright 2002-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.beans.support.MutableSortDefinition;
+import org.springframework.beans.support.PropertyComparator;
+import org.springframework.samples.petclinic.visit.Visit;
+
+/**
+ * Compares the cost of reading {@link Owner#getPets()} and {@link Pet#getVisits()} the way
+ * <code>ownerDetails.html</code> does, between the old reflective {@link PropertyComparator} copy
+ * on every call and the cached sorted views. Each invocation is one render of a freshly loaded
+ * owner: the cached views are reset first, so the first read still pays for the sort.
+ * <p>
+ * Run with <code>./mvnw -Pbenchmark test-compile exec:exec -Dbenchmark=OwnerDetailsBenchmark</code>;
+ * the <code>gc</code> profiler reports the allocation rate per operation
+ * (<code>gc.alloc.rate.norm</code>).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OwnerDetailsBenchmark {
+
+    /**
+     * How many times the template reads each association while rendering the page.
+     */
+    @Param({ "1", "4" })
+    private int reads;
+
+    @Param({ "3" })
+    private int pets;
+
+    @Param({ "20" })
+    private int visitsPerPet;
+
+    private Owner owner;
+
+    @Setup
+    public void setup() {
+        this.owner = new Owner();
+        Calendar calendar = Calendar.getInstance();
+        for (int i = 0; i < this.pets; i++) {
+            Pet pet = new Pet();
+            pet.setName("pet" + ((i * 7) % this.pets));
+            for (int j = 0; j < this.visitsPerPet; j++) {
+                Visit visit = new Visit();
+                calendar.set(2010 + (j * 13) % 8, j % 12, 1 + j % 28);
+                visit.setDate(calendar.getTime());
+                pet.addVisit(visit);
+            }
+            this.owner.addPet(pet);
+        }
+    }
+
+    @Benchmark
+    public void propertyComparator(Blackhole blackhole) {
+        for (int i = 0; i < this.reads; i++) {
+            for (Pet pet : sortByProperty(this.owner.getPetsInternal(), "name", true, true)) {
+                for (int j = 0; j < this.reads; j++) {
+                    blackhole.consume(sortByProperty(pet.getVisitsInternal(), "date", false, false));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void cachedSortedView(Blackhole blackhole) {
+        this.owner.setPetsInternal(this.owner.getPetsInternal());
+        for (Pet pet : this.owner.getPetsInternal()) {
+            pet.setVisitsInternal(pet.getVisitsInternal());
+        }
+        for (int i = 0; i < this.reads; i++) {
+            for (Pet pet : this.owner.getPets()) {
+                for (int j = 0; j < this.reads; j++) {
+                    blackhole.consume(pet.getVisits());
+                }
+            }
+        }
+    }
+
+    /**
+     * The getter implementation used before the sorted views were cached.
+     */
+    private static <T> List<T> sortByProperty(Set<T> source, String property, boolean ignoreCase, boolean ascending) {
+        List<T> sorted = new ArrayList<>(source);
+        PropertyComparator.sort(sorted, new MutableSortDefinition(property, ignoreCase, ascending));
+        return Collections.unmodifiableList(sorted);
+    }
+
+}
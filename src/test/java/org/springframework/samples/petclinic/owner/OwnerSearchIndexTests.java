@@ -0,0 +1,228 @@
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for {@link OwnerSearchIndex}
+ */
+public class OwnerSearchIndexTests {
+
+    private OwnerRepository owners;
+
+    private OwnerSearchIndex index;
+
+    @Before
+    public void setup() {
+        this.owners = mock(OwnerRepository.class);
+        given(this.owners.findAllSearchFields()).willReturn(Arrays.asList(
+            fields(1, "George", "Franklin", "Madison", "6085551023"),
+            fields(2, "Betty", "Davis", "Sun Prairie", "6085551749"),
+            fields(4, "Harold", "Davis", "Windsor", "6085553198"),
+            fields(3, "Eduardo", "Rodriquez", "McFarland", "6085558763"),
+            fields(6, "Jean", "Coleman", "Monona", "6085552654")));
+        this.index = new OwnerSearchIndex(this.owners, true);
+    }
+
+    private OwnerSearchFields fields(int id, String firstName, String lastName, String city, String telephone) {
+        return new OwnerSearchFields(id, firstName, lastName, city, telephone);
+    }
+
+    @Test
+    public void shouldNotBeReadyBeforeLoading() {
+        assertThat(this.index.isReady()).isFalse();
+        this.index.load();
+        assertThat(this.index.isReady()).isTrue();
+    }
+
+    @Test
+    public void shouldNotLoadOrKeepSavesWhenDisabled() {
+        OwnerSearchIndex disabled = new OwnerSearchIndex(this.owners, false);
+        Owner owner = new Owner();
+        owner.setId(7);
+        owner.setLastName("Black");
+        disabled.put(owner);
+        disabled.loadInBackground();
+
+        assertThat(disabled.isReady()).isFalse();
+        verify(this.owners, never()).findAllSearchFields();
+    }
+
+    @Test
+    public void shouldFindAllOwnersInLastNameOrder() {
+        this.index.load();
+        assertThat(this.index.findAfter("", null, 10)).containsExactly(6, 2, 4, 1, 3);
+    }
+
+    @Test
+    public void shouldMatchShortQueriesByLastNamePrefix() {
+        this.index.load();
+        assertThat(this.index.findAfter("d", null, 10)).containsExactly(2, 4);
+        assertThat(this.index.findAfter("Da", null, 10)).containsExactly(2, 4);
+        assertThat(this.index.findAfter("m", null, 10)).isEmpty();
+    }
+
+    @Test
+    public void shouldMatchLongerQueriesAnywhere() {
+        this.index.load();
+        assertThat(this.index.findAfter("MADISON", null, 10)).containsExactly(1);
+        assertThat(this.index.findAfter("george fr", null, 10)).containsExactly(1);
+        assertThat(this.index.findAfter("5551", null, 10)).containsExactly(2, 1);
+        assertThat(this.index.findAfter("avi", null, 10)).containsExactly(2, 4);
+        assertThat(this.index.findAfter("xyz", null, 10)).isEmpty();
+    }
+
+    @Test
+    public void shouldPageAfterAndBeforeCursors() {
+        this.index.load();
+        assertThat(this.index.findAfter("", new OwnerCursor("Davis", 2), 2)).containsExactly(4, 1);
+        assertThat(this.index.findBefore("", new OwnerCursor("Franklin", 1), 2)).containsExactly(4, 2);
+        assertThat(this.index.findAfter("dav", new OwnerCursor("Davis", 2), 2)).containsExactly(4);
+        assertThat(this.index.findBefore("d", new OwnerCursor("Davis", 4), 5)).containsExactly(2);
+        assertThat(this.index.findAfter("d", new OwnerCursor("Zzz", 1), 5)).isEmpty();
+    }
+
+    @Test
+    public void shouldPageThroughSubstringMatches() {
+        given(this.owners.findAllSearchFields()).willReturn(Arrays.asList(
+            fields(1, "Ann", "Zeta", "Madison", "1"),
+            fields(2, "Bob", "Alpha", "Madison", "2"),
+            fields(3, "Cid", "Mu", "Madison", "3"),
+            fields(4, "Dan", "Mu", "Verona", "4"),
+            fields(5, "Eve", "Beta", "Madison", "5")));
+        this.index.load();
+
+        assertThat(this.index.findAfter("madison", null, 2)).containsExactly(2, 5);
+        assertThat(this.index.findAfter("madison", new OwnerCursor("Beta", 5), 2)).containsExactly(3, 1);
+        assertThat(this.index.findBefore("madison", new OwnerCursor("Mu", 3), 5)).containsExactly(5, 2);
+        assertThat(this.index.findAfter("madison", new OwnerCursor("Zeta", 1), 2)).isEmpty();
+    }
+
+    @Test
+    public void shouldKeepSubstringMatchesInOrderAfterRenames() {
+        this.index.load();
+        Owner renamed = new Owner();
+        renamed.setId(6);
+        renamed.setFirstName("Jean");
+        renamed.setLastName("Aaron");
+        renamed.setCity("Madison");
+        renamed.setTelephone("6085552654");
+        this.index.put(renamed);
+
+        assertThat(this.index.findAfter("madison", null, 10)).containsExactly(6, 1);
+        assertThat(this.index.findAfter("monona", null, 10)).isEmpty();
+    }
+
+    @Test
+    public void shouldApplySavedOwners() {
+        this.index.load();
+        Owner owner = new Owner();
+        owner.setId(1);
+        owner.setFirstName("George");
+        owner.setLastName("Ashby");
+        owner.setCity("Verona");
+        owner.setTelephone("6085550000");
+        this.index.put(owner);
+
+        assertThat(this.index.findAfter("", null, 10)).containsExactly(1, 6, 2, 4, 3);
+        assertThat(this.index.findAfter("madison", null, 10)).isEmpty();
+        assertThat(this.index.findAfter("verona", null, 10)).containsExactly(1);
+    }
+
+    @Test
+    public void shouldApplyChangesThatKeepTheLastName() {
+        this.index.load();
+        this.index.put(owner(2, "Betty", "Davis", "Windsor", "6085551749"));
+        this.index.put(owner(4, "Harold", "Davis", "Windsor", "6085553198"));
+
+        assertThat(this.index.findAfter("windsor", null, 10)).containsExactly(2, 4);
+        assertThat(this.index.findAfter("windsor", new OwnerCursor("Davis", 2), 10)).containsExactly(4);
+        assertThat(this.index.findAfter("prairie", null, 10)).isEmpty();
+        assertThat(this.index.findAfter("dav", null, 10)).containsExactly(2, 4);
+    }
+
+    /**
+     * Every owner shares the telephone prefix and most share the city, so a save that had to copy
+     * those lists would take minutes here.
+     */
+    @Test(timeout = 30000)
+    public void shouldApplySavesWithoutCopyingLargeTrigramLists() {
+        List<OwnerSearchFields> all = new ArrayList<>();
+        for (int id = 1; id <= 100000; id++) {
+            all.add(fields(id, "Ann", "Owner" + id, "Madison", "608" + id));
+        }
+        given(this.owners.findAllSearchFields()).willReturn(all);
+        this.index.load();
+
+        for (int id = 1; id <= 100000; id++) {
+            this.index.put(owner(id, "Ann", "Owner" + id, id % 10 == 0 ? "Verona" : "Madison", "608" + id));
+        }
+        for (int id = 5; id <= 100000; id += 10) {
+            this.index.put(owner(id, "Ann", "Renamed" + id, "Madison", "608" + id));
+        }
+
+        assertThat(this.index.findAfter("verona", null, 100000)).hasSize(10000);
+        assertThat(this.index.findAfter("madison", null, 100000)).hasSize(90000);
+        assertThat(this.index.findAfter("renamed", null, 100000)).hasSize(10000);
+        assertThat(this.index.findAfter("608", null, 10)).containsExactly(1, 10, 100, 1000, 10000, 100000, 10001,
+            10002, 10003, 10004);
+    }
+
+    @Test
+    public void shouldSuggestLastNamesAndFollowRenames() {
+        assertThat(this.index.suggestLastNames("d", 5)).isEmpty();
+        this.index.load();
+        assertThat(this.index.suggestLastNames("D", 5)).extracting(LastNameTrie.Suggestion::getLastName)
+            .containsExactly("Davis");
+        assertThat(this.index.suggestLastNames("D", 5)).extracting(LastNameTrie.Suggestion::getCount)
+            .containsExactly(2);
+
+        Owner owner = new Owner();
+        owner.setId(4);
+        owner.setFirstName("Harold");
+        owner.setLastName("Dawson");
+        owner.setCity("Windsor");
+        owner.setTelephone("6085553198");
+        this.index.put(owner);
+
+        assertThat(this.index.suggestLastNames("da", 5)).extracting(LastNameTrie.Suggestion::getLastName)
+            .containsExactly("Davis", "Dawson");
+        assertThat(this.index.suggestLastNames("da", 5)).extracting(LastNameTrie.Suggestion::getCount)
+            .containsExactly(1, 1);
+    }
+
+    @Test
+    public void shouldReplaySavesMadeWhileLoading() {
+        Owner owner = new Owner();
+        owner.setId(7);
+        owner.setFirstName("Jeff");
+        owner.setLastName("Black");
+        owner.setCity("Monona");
+        owner.setTelephone("6085555387");
+        this.index.put(owner);
+        this.index.load();
+
+        assertThat(this.index.findAfter("monona", null, 10)).containsExactly(7, 6);
+    }
+
+    private static Owner owner(int id, String firstName, String lastName, String city, String telephone) {
+        Owner owner = new Owner();
+        owner.setId(id);
+        owner.setFirstName(firstName);
+        owner.setLastName(lastName);
+        owner.setCity(city);
+        owner.setTelephone(telephone);
+        return owner;
+    }
+
+}
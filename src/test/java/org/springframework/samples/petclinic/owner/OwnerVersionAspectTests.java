@@ -0,0 +1,87 @@
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+public class OwnerVersionAspectTests {
+
+    private final OwnerRepository owners = mock(OwnerRepository.class);
+
+    private final VisitRepository visitTarget = mock(VisitRepository.class);
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    private final TransactionStatus status = new SimpleTransactionStatus();
+
+    private VisitRepository visits;
+
+    @Before
+    public void setup() {
+        given(this.transactionManager.getTransaction(any())).willReturn(this.status);
+        AspectJProxyFactory factory = new AspectJProxyFactory(this.visitTarget);
+        factory.addAspect(new OwnerVersionAspect(this.owners, this.transactionManager));
+        this.visits = factory.getProxy();
+    }
+
+    @Test
+    public void testSaveAndVersionBumpCommitTogether() {
+        this.visits.save(visit(7));
+
+        InOrder order = inOrder(this.transactionManager, this.visitTarget, this.owners);
+        order.verify(this.transactionManager).getTransaction(any());
+        order.verify(this.visitTarget).save(any(Visit.class));
+        order.verify(this.owners).touchByPetIds(Collections.singleton(7));
+        order.verify(this.transactionManager).commit(this.status);
+    }
+
+    @Test
+    public void testFailedVersionBumpRollsBackTheSave() {
+        willThrow(new DataIntegrityViolationException("bump")).given(this.owners).touchByPetIds(any());
+
+        Throwable thrown = catchThrowable(() -> this.visits.save(visit(7)));
+
+        assertThat(thrown).isInstanceOf(DataIntegrityViolationException.class);
+        verify(this.transactionManager).rollback(this.status);
+        verify(this.transactionManager, never()).commit(any());
+    }
+
+    @Test
+    public void testFailedSaveIsNotBumped() {
+        willThrow(new DataIntegrityViolationException("save")).given(this.visitTarget).save(any());
+
+        Throwable thrown = catchThrowable(() -> this.visits.save(visit(7)));
+
+        assertThat(thrown).isInstanceOf(DataIntegrityViolationException.class);
+        verifyZeroInteractions(this.owners);
+        verify(this.transactionManager).rollback(this.status);
+    }
+
+    private static Visit visit(int petId) {
+        Visit visit = new Visit();
+        visit.setPetId(petId);
+        visit.setDescription("check up");
+        return visit;
+    }
+
+}
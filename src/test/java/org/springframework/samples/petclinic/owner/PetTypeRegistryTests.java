@@ -0,0 +1,73 @@
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.assertj.core.util.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+
+/**
+ * Test class for {@link PetTypeRegistry}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class PetTypeRegistryTests {
+
+    @Mock
+    private PetRepository pets;
+
+    private PetTypeRegistry registry;
+
+    @Before
+    public void setup() {
+        this.registry = new PetTypeRegistry(pets);
+        Mockito.when(this.pets.findPetTypes()).thenReturn(Lists.newArrayList(petType("bird"), petType("dog")));
+    }
+
+    @Test
+    public void shouldLoadOnceAndServeFromMemory() {
+        assertThat(this.registry.findByName("dog").getName()).isEqualTo("dog");
+        assertThat(this.registry.findByName("fish")).isNull();
+        assertThat(this.registry.findAll()).extracting(PetType::getName).containsExactly("bird", "dog");
+
+        verify(this.pets, times(1)).findPetTypes();
+        assertThat(this.registry.getRefreshCount()).isEqualTo(1);
+        assertThat(this.registry.getHitCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldReloadAfterInvalidate() {
+        this.registry.findAll();
+        this.registry.invalidate();
+        this.registry.findAll();
+
+        verify(this.pets, times(2)).findPetTypes();
+        assertThat(this.registry.getRefreshCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldReloadWhenInvalidatedDuringALoad() {
+        Mockito.when(this.pets.findPetTypes()).thenAnswer(invocation -> {
+            this.registry.invalidate();
+            return Lists.newArrayList(petType("dog"));
+        }).thenReturn(Lists.newArrayList(petType("dog"), petType("hamster")));
+
+        assertThat(this.registry.findAll()).extracting(PetType::getName).containsExactly("dog");
+        assertThat(this.registry.findAll()).extracting(PetType::getName).containsExactly("dog", "hamster");
+        assertThat(this.registry.findAll()).extracting(PetType::getName).containsExactly("dog", "hamster");
+
+        verify(this.pets, times(2)).findPetTypes();
+    }
+
+    private PetType petType(String name) {
+        PetType type = new PetType();
+        type.setName(name);
+        return type;
+    }
+
+}
@@ -1,6 +1,11 @@
 package org.springframework.samples.petclinic.owner;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
@@ -10,12 +15,15 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.samples.petclinic.owner.Pet;
 import org.springframework.samples.petclinic.owner.PetRepository;
 import org.springframework.samples.petclinic.owner.VisitController;
+import org.springframework.samples.petclinic.visit.Visit;
 import org.springframework.samples.petclinic.visit.VisitRepository;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
@@ -43,6 +51,7 @@ public class VisitControllerTests {
     @Before
     public void init() {
         given(this.pets.findById(TEST_PET_ID)).willReturn(new Pet());
+        given(this.pets.existsById(TEST_PET_ID)).willReturn(true);
     }
 
     @Test
@@ -50,6 +59,13 @@ public class VisitControllerTests {
         mockMvc.perform(get("/owners/*/pets/{petId}/visits/new", TEST_PET_ID))
             .andExpect(status().isOk())
             .andExpect(view().name("pets/createOrUpdateVisitForm"));
+        verify(this.visits).findLatestByPetId(TEST_PET_ID, PageRequest.of(0, VisitController.LATEST_VISITS));
+    }
+
+    @Test
+    public void testInitNewVisitFormForUnknownPet() throws Exception {
+        mockMvc.perform(get("/owners/*/pets/{petId}/visits/new", 99))
+            .andExpect(status().isNotFound());
     }
 
     @Test
@@ -60,6 +76,31 @@ public class VisitControllerTests {
         )
             .andExpect(status().is3xxRedirection())
             .andExpect(view().name("redirect:/owners/{ownerId}"));
+        ArgumentCaptor<Visit> saved = ArgumentCaptor.forClass(Visit.class);
+        verify(this.visits).save(saved.capture());
+        assertThat(saved.getValue().getPetId()).isEqualTo(TEST_PET_ID);
+        verify(this.pets, never()).findById(anyInt());
+    }
+
+    @Test
+    public void testProcessNewVisitFormIgnoresPostedPetId() throws Exception {
+        mockMvc.perform(post("/owners/*/pets/{petId}/visits/new", TEST_PET_ID)
+            .param("petId", "2")
+            .param("description", "Visit Description")
+        )
+            .andExpect(status().is3xxRedirection());
+        ArgumentCaptor<Visit> saved = ArgumentCaptor.forClass(Visit.class);
+        verify(this.visits).save(saved.capture());
+        assertThat(saved.getValue().getPetId()).isEqualTo(TEST_PET_ID);
+    }
+
+    @Test
+    public void testProcessNewVisitFormForUnknownPet() throws Exception {
+        mockMvc.perform(post("/owners/*/pets/{petId}/visits/new", 99)
+            .param("description", "Visit Description")
+        )
+            .andExpect(status().isNotFound());
+        verify(this.visits, never()).save(any(Visit.class));
     }
 
     @Test
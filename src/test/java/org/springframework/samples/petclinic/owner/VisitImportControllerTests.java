@@ -0,0 +1,133 @@
+package org.springframework.samples.petclinic.owner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Test class for {@link VisitImportController}
+ */
+@RunWith(SpringRunner.class)
+@WebMvcTest(value = VisitImportController.class,
+    includeFilters = @ComponentScan.Filter(value = VisitImporter.class, type = FilterType.ASSIGNABLE_TYPE))
+public class VisitImportControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private VisitRepository visits;
+
+    @MockBean
+    private PetRepository pets;
+
+    @MockBean
+    private PlatformTransactionManager transactionManager;
+
+    @Captor
+    private ArgumentCaptor<List<Visit>> saved;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        given(this.pets.findExistingIds(anyCollection())).willReturn(Arrays.asList(1, 2));
+        given(this.visits.saveAll(any())).willAnswer(invocation -> {
+            int id = 100;
+            for (Visit visit : invocation.<Iterable<Visit>>getArgument(0)) {
+                visit.setId(id++);
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void testImportJsonArray() throws Exception {
+        mockMvc.perform(post("/visits/bulk")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[{\"petId\": 1, \"date\": \"2013-01-01\", \"description\": \"rabies shot\"},"
+                + " {\"petId\": 2, \"description\": \"neutered\"}]"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.rows").value(2))
+            .andExpect(jsonPath("$.succeeded").value(2))
+            .andExpect(jsonPath("$.failed").value(0))
+            .andExpect(jsonPath("$.rowsPerSecond").isNumber())
+            .andExpect(jsonPath("$.results[0].status").value("created"))
+            .andExpect(jsonPath("$.results[0].id").value(100))
+            .andExpect(jsonPath("$.results[1].id").value(101));
+
+        verify(this.visits).saveAll(this.saved.capture());
+        assertThat(this.saved.getValue()).extracting(Visit::getPetId).containsExactly(1, 2);
+    }
+
+    @Test
+    public void testImportNdjsonReportsEachRow() throws Exception {
+        mockMvc.perform(post("/visits/bulk")
+            .contentType(VisitImportController.NDJSON_VALUE)
+            .content("{\"petId\": 1, \"description\": \"rabies shot\"}\n"
+                + "{\"petId\": 1}\n"
+                + "{\"petId\": 3, \"description\": \"unknown pet\"}\n"
+                + "{\"petId\": 2, \"date\": \"yesterday\", \"description\": \"bad date\"}\n"
+                + "{\"description\": \"no pet\"}\n"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.rows").value(5))
+            .andExpect(jsonPath("$.succeeded").value(1))
+            .andExpect(jsonPath("$.failed").value(4))
+            .andExpect(jsonPath("$.results", hasSize(5)))
+            .andExpect(jsonPath("$.results[0].status").value("created"))
+            .andExpect(jsonPath("$.results[1].errors[0]").value("description: must not be empty"))
+            .andExpect(jsonPath("$.results[2].errors[0]").value("petId: no pet with id 3"))
+            .andExpect(jsonPath("$.results[3].status").value("rejected"))
+            .andExpect(jsonPath("$.results[4].errors[0]").value("petId: must not be null"));
+    }
+
+    @Test
+    public void testMalformedJsonStopsTheImport() throws Exception {
+        mockMvc.perform(post("/visits/bulk")
+            .contentType(VisitImportController.NDJSON_VALUE)
+            .content("{\"petId\": 1, \"description\": \"rabies shot\"}\n{\"petId\": "))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.succeeded").value(1))
+            .andExpect(jsonPath("$.results[1].row").value(2))
+            .andExpect(jsonPath("$.results[1].status").value("rejected"));
+    }
+
+    @Test
+    public void testNothingSavedWhenEveryRowIsInvalid() throws Exception {
+        mockMvc.perform(post("/visits/bulk")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[{\"petId\": 1}]"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.failed").value(1));
+
+        verify(this.visits, never()).saveAll(any());
+    }
+
+}
@@ -2,8 +2,12 @@ package org.springframework.samples.petclinic.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -11,8 +15,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.OwnerDetails;
 import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.OwnerSearchFields;
+import org.springframework.samples.petclinic.owner.OwnerSummary;
 import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.samples.petclinic.owner.PetDetails;
 import org.springframework.samples.petclinic.owner.PetRepository;
 import org.springframework.samples.petclinic.owner.PetType;
 import org.springframework.samples.petclinic.vet.Vet;
@@ -69,6 +77,44 @@ public class ClinicServiceTests {
         assertThat(owners.isEmpty()).isTrue();
     }
 
+    @Test
+    public void shouldPageOwnersByLastName() {
+        List<OwnerSummary> page = this.owners.findByLastNameAfter("Davis", "", 0, 1);
+        assertThat(page).extracting(OwnerSummary::getId).containsExactly(2);
+
+        page = this.owners.findByLastNameAfter("Davis", "Davis", 2, 1);
+        assertThat(page).extracting(OwnerSummary::getId).containsExactly(4);
+
+        page = this.owners.findByLastNameAfter("Davis", "Davis", 4, 1);
+        assertThat(page).isEmpty();
+
+        page = this.owners.findByLastNameBefore("Davis", "Davis", 4, 5);
+        assertThat(page).extracting(OwnerSummary::getId).containsExactly(2);
+    }
+
+    @Test
+    public void shouldSummariseOwnersWithPetNames() {
+        List<OwnerSummary> page = this.owners.findByLastNameAfter("", "", 0, 20);
+        assertThat(page).hasSize(10);
+        OwnerSummary jean = page.stream().filter(o -> o.getId() == 6).findFirst().get();
+        assertThat(jean.getFirstName()).isEqualTo("Jean");
+        assertThat(jean.getLastName()).isEqualTo("Coleman");
+        assertThat(jean.getCity()).isEqualTo("Monona");
+        assertThat(jean.getPetNames()).isEqualTo("Max, Samantha");
+    }
+
+    @Test
+    @Transactional
+    public void shouldIncrementOwnerVersion() {
+        int version = this.owners.findVersionById(6);
+        this.owners.touch(6);
+        assertThat(this.owners.findVersionById(6)).isEqualTo(version + 1);
+
+        this.owners.touchByPetIds(Collections.singleton(7));
+        assertThat(this.owners.findVersionById(6)).isEqualTo(version + 2);
+        assertThat(this.owners.findVersionById(999)).isNull();
+    }
+
     @Test
     public void shouldFindSingleOwnerWithPet() {
         Owner owner = this.owners.findById(1);
@@ -78,6 +124,15 @@ public class ClinicServiceTests {
         assertThat(owner.getPets().get(0).getType().getName()).isEqualTo("cat");
     }
 
+    @Test
+    public void shouldFindOwnerDetails() {
+        OwnerDetails owner = this.owners.findDetailsById(6);
+        assertThat(owner.getLastName()).isEqualTo("Coleman");
+        assertThat(owner.getPets()).extracting(PetDetails::getName).containsExactly("Max", "Samantha");
+        assertThat(owner.getPets().get(1).getVisits()).hasSize(2);
+        assertThat(this.owners.findDetailsById(999)).isNull();
+    }
+
     @Test
     @Transactional
     public void shouldInsertOwner() {
@@ -203,4 +258,44 @@ public class ClinicServiceTests {
         assertThat(visitArr[0].getPetId()).isEqualTo(7);
     }
 
+    @Test
+    @Transactional
+    public void shouldSaveVisitsInBulk() {
+        int found = this.visits.findByPetId(8).size();
+        List<Visit> batch = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Visit visit = new Visit();
+            visit.setPetId(8);
+            visit.setDescription("bulk " + i);
+            batch.add(visit);
+        }
+        this.visits.saveAll(batch);
+
+        assertThat(batch).extracting(Visit::getId).doesNotContainNull();
+        assertThat(this.visits.findByPetId(8)).hasSize(found + 3);
+    }
+
+    @Test
+    public void shouldFindExistingPetIds() {
+        assertThat(this.pets.findExistingIds(Arrays.asList(1, 7, 999))).containsOnly(1, 7);
+    }
+
+    @Test
+    public void shouldFindOwnerSummariesByIds() {
+        List<OwnerSummary> summaries = this.owners.findSummariesByIds(Arrays.asList(6, 1, 999));
+        assertThat(summaries).extracting(OwnerSummary::getId).containsOnly(1, 6);
+        assertThat(summaries).filteredOn(summary -> summary.getId() == 6)
+            .extracting(OwnerSummary::getPetNames).containsExactly("Max, Samantha");
+    }
+
+    @Test
+    public void shouldFindSearchFieldsOfAllOwners() {
+        List<OwnerSearchFields> owners = this.owners.findAllSearchFields();
+        assertThat(owners.size()).isGreaterThanOrEqualTo(10);
+        assertThat(owners).filteredOn(owner -> owner.getId() == 1)
+            .extracting(OwnerSearchFields::getLastName).containsExactly("Franklin");
+        assertThat(owners).filteredOn(owner -> owner.getId() == 1)
+            .extracting(OwnerSearchFields::getCity).containsExactly("Madison");
+    }
+
 }
@@ -0,0 +1,27 @@
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+
+import javax.cache.CacheManager;
+
+import org.junit.Test;
+
+public class CacheConfigTests {
+
+    @Test
+    public void testTimeToLiveAndTimeToIdleCannotBeCombined() {
+        CacheProperties.Spec spec = new CacheProperties.Spec();
+        spec.setTimeToLive(Duration.ofMinutes(10));
+        spec.setTimeToIdle(Duration.ofMinutes(1));
+        CacheProperties properties = new CacheProperties();
+        properties.getSpecs().put("vets", spec);
+
+        assertThatThrownBy(() -> new CacheConfig().cacheManagerCustomizer(properties).customize(mock(CacheManager.class)))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("vets");
+    }
+
+}
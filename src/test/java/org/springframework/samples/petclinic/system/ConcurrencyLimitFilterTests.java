@@ -0,0 +1,116 @@
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class ConcurrencyLimitFilterTests {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private ConcurrencyLimitFilter filter;
+
+    @Before
+    public void setup() {
+        ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+        properties.setInitialLimit(1);
+        properties.setMinLimit(1);
+        properties.setMaxLimit(1);
+        this.filter = new ConcurrencyLimitFilter(properties, this.registry);
+    }
+
+    @Test
+    public void testRequestOverTheLimitIsRejected() throws Exception {
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        MockHttpServletResponse first = perform("GET", "/owners/1", whileRunning("GET", "/vets.html", second));
+
+        assertThat(first.getStatus()).isEqualTo(200);
+        assertThat(second.getStatus()).isEqualTo(503);
+        assertThat(second.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(registry.get("petclinic.concurrency.rejections").tag("group", "reads").counter().count()).isEqualTo(1);
+        assertThat(registry.get("petclinic.concurrency.inflight").tag("group", "reads").gauge().value()).isEqualTo(0);
+    }
+
+    @Test
+    public void testReadsAndWritesAreLimitedSeparately() throws Exception {
+        MockHttpServletResponse write = new MockHttpServletResponse();
+        perform("GET", "/owners", whileRunning("POST", "/owners/1/pets/7/visits/new", write));
+
+        assertThat(write.getStatus()).isEqualTo(200);
+        assertThat(registry.get("petclinic.concurrency.rejections").tag("group", "writes").counter().count()).isZero();
+    }
+
+    @Test
+    public void testOtherPathsAreNotLimited() throws Exception {
+        MockHttpServletResponse manage = new MockHttpServletResponse();
+        MockHttpServletResponse export = new MockHttpServletResponse();
+        perform("GET", "/owners/1", whileRunning("GET", "/manage/health", manage));
+        perform("GET", "/owners/1", whileRunning("GET", "/export/owners", export));
+
+        assertThat(manage.getStatus()).isEqualTo(200);
+        assertThat(export.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    public void testLimitGrowsWhileResponseTimesAreSteady() {
+        GradientLimit limit = new GradientLimit(20, 4, 200, 1.5, 0.2);
+        long now = feed(limit, 0, 50, 10 * MS, 20);
+        assertThat(limit.getLimit()).isGreaterThan(20);
+        int grown = limit.getLimit();
+        feed(limit, now, 50, 10 * MS, grown);
+        assertThat(limit.getLimit()).isGreaterThan(grown).isLessThanOrEqualTo(200);
+    }
+
+    @Test
+    public void testLimitDoesNotGrowWhileMostlyIdle() {
+        GradientLimit limit = new GradientLimit(20, 4, 200, 1.5, 0.2);
+        feed(limit, 0, 50, 10 * MS, 3);
+        assertThat(limit.getLimit()).isEqualTo(20);
+    }
+
+    @Test
+    public void testLimitShrinksWhenRequestsQueue() {
+        GradientLimit limit = new GradientLimit(50, 4, 200, 1.5, 0.2);
+        long now = feed(limit, 0, 20, 10 * MS, 50);
+        int before = limit.getLimit();
+        feed(limit, now, 20, 100 * MS, before);
+        assertThat(limit.getLimit()).isLessThan(before / 2).isGreaterThanOrEqualTo(4);
+    }
+
+    private MockHttpServletResponse perform(String method, String uri, FilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest(method, uri), response, chain);
+        return response;
+    }
+
+    private FilterChain whileRunning(String method, String uri, MockHttpServletResponse response) {
+        return (request, ignored) -> filter.doFilter(new MockHttpServletRequest(method, uri), response,
+            new MockFilterChain());
+    }
+
+    /**
+     * Feeds whole windows of identical samples and returns the time after the last one.
+     */
+    private static long feed(GradientLimit limit, long now, int windows, long rtt, int inflight) {
+        for (int i = 0; i < windows; i++) {
+            for (int j = 0; j < GradientLimit.WINDOW_SAMPLES; j++) {
+                now += GradientLimit.WINDOW_NANOS / (GradientLimit.WINDOW_SAMPLES - 1);
+                limit.sample(now, rtt, inflight);
+            }
+        }
+        return now;
+    }
+
+}
@@ -0,0 +1,118 @@
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManagerFactory;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Checks that pages render without an open persistence context, and so without holding a pooled
+ * connection, now that open-in-view is off. Not transactional, unlike {@link SqlBudgetTests},
+ * since a test transaction would keep its connection for the whole request.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.profiles.active=test")
+@AutoConfigureMockMvc
+public class ConnectionHoldTests {
+
+    private static final String[] PAGES = { "/owners/1", "/owners/6", "/owners?lastName=", "/owners/1/edit",
+        "/owners/1/pets/new", "/owners/6/pets/7/edit", "/owners/6/pets/7/visits/new", "/vets.html" };
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private RenderingProbe probe;
+
+    @Before
+    public void setup() {
+        this.probe.boundBeforeRendering.clear();
+    }
+
+    @Test
+    public void testPagesRenderWithoutAPersistenceContext() throws Exception {
+        for (String page : PAGES) {
+            mockMvc.perform(get(page))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("X-SQL-Connection-Time"));
+        }
+        assertThat(this.probe.boundBeforeRendering).hasSize(PAGES.length);
+        assertThat(this.probe.boundBeforeRendering).allMatch(resources -> !resources.containsKey(this.entityManagerFactory));
+    }
+
+    @Test
+    public void testConnectionHoldTimeIsRecordedPerPage() throws Exception {
+        mockMvc.perform(get("/owners/1")).andExpect(status().isOk());
+        mockMvc.perform(get("/vets.html")).andExpect(status().isOk());
+
+        Timer owners = registry.find("petclinic.sql.connection.hold").tags("uri", "/owners/{ownerId}").timer();
+        assertThat(owners).isNotNull();
+        assertThat(owners.count()).isGreaterThan(0);
+        assertThat(registry.find("petclinic.sql.connection.hold").tags("uri", "/vets.html").timer()).isNotNull();
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        public RenderingProbe renderingProbe() {
+            return new RenderingProbe();
+        }
+
+    }
+
+    /**
+     * Records the resources bound to the request thread after the handler ran, just before the
+     * view is rendered.
+     */
+    static class RenderingProbe implements WebMvcConfigurer, HandlerInterceptor {
+
+        final List<Map<Object, Object>> boundBeforeRendering = new ArrayList<>();
+
+        @Override
+        public void addInterceptors(InterceptorRegistry registry) {
+            registry.addInterceptor(this);
+        }
+
+        @Override
+        public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                               ModelAndView modelAndView) {
+            this.boundBeforeRendering.add(new HashMap<>(TransactionSynchronizationManager.getResourceMap()));
+        }
+
+    }
+
+}
@@ -0,0 +1,119 @@
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.Resource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.View;
+import org.springframework.web.servlet.ViewResolver;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class FlightRecorderEndpointTests {
+
+    @Autowired
+    private FlightRecorderEndpoint endpoint;
+
+    @Autowired
+    private OwnerRepository owners;
+
+    @Autowired
+    private VetRepository vets;
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @After
+    public void stopRecording() throws IOException {
+        WebEndpointResponse<Resource> response = endpoint.stop();
+        if (response.getBody() != null) {
+            response.getBody().getInputStream().close();
+        }
+    }
+
+    @Test
+    public void testRecordingContainsApplicationEvents() throws Exception {
+        assertThat(endpoint.start(null).getStatus()).isEqualTo(WebEndpointResponse.STATUS_OK);
+        assertThat(endpoint.recording().getBody()).containsEntry("name", "petclinic");
+
+        owners.findById(1);
+        vets.findAll();
+        vets.findAll();
+        ViewResolver resolver = context.getBean("thymeleafViewResolver", ViewResolver.class);
+        View welcome = resolver.resolveViewName("welcome", Locale.ENGLISH);
+        MockHttpServletResponse rendered = new MockHttpServletResponse();
+        welcome.render(Collections.emptyMap(), new MockHttpServletRequest(context.getServletContext()), rendered);
+
+        List<RecordedEvent> events = read(endpoint.stop());
+        assertThat(endpoint.recording().getStatus()).isEqualTo(WebEndpointResponse.STATUS_NOT_FOUND);
+
+        RecordedEvent findById = events(events, "RepositoryInvocation").stream()
+            .filter(event -> "findById".equals(event.getString("method"))).findFirst().get();
+        assertThat(findById.getString("repository")).isEqualTo("OwnerRepository");
+        assertThat(findById.getInt("rows")).isEqualTo(1);
+
+        List<RecordedEvent> lookups = events(events, "CacheLookup");
+        assertThat(lookups).isNotEmpty().allMatch(event -> "vets".equals(event.getString("cache")));
+        assertThat(lookups).anyMatch(event -> event.getBoolean("hit"));
+
+        RecordedEvent rendering = events(events, "TemplateRendering").get(0);
+        assertThat(rendering.getString("template")).isEqualTo("welcome");
+        assertThat(rendering.getLong("bytes")).isEqualTo(rendered.getContentAsByteArray().length);
+    }
+
+    @Test
+    public void testStartIsIdempotent() throws Exception {
+        endpoint.start("default");
+        assertThat(endpoint.start(null).getStatus()).isEqualTo(WebEndpointResponse.STATUS_OK);
+    }
+
+    @Test
+    public void testUnknownSettingsAreRejected() throws Exception {
+        assertThat(endpoint.start("nonexistent").getStatus()).isEqualTo(WebEndpointResponse.STATUS_BAD_REQUEST);
+    }
+
+    @Test
+    public void testStopWithoutRecording() throws Exception {
+        assertThat(endpoint.stop().getStatus()).isEqualTo(WebEndpointResponse.STATUS_NOT_FOUND);
+    }
+
+    private static List<RecordedEvent> events(List<RecordedEvent> events, String name) {
+        return events.stream()
+            .filter(event -> event.getEventType().getName().equals("org.springframework.samples.petclinic." + name))
+            .collect(Collectors.toList());
+    }
+
+    private static List<RecordedEvent> read(WebEndpointResponse<Resource> response) throws IOException {
+        Path file = Files.createTempFile("petclinic", ".jfr");
+        try (InputStream data = response.getBody().getInputStream()) {
+            Files.copy(data, file, StandardCopyOption.REPLACE_EXISTING);
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
@@ -1,10 +1,24 @@
 package org.springframework.samples.petclinic.system;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
 import org.springframework.samples.petclinic.vet.VetRepository;
 import org.springframework.test.context.junit4.SpringRunner;
 
@@ -15,9 +29,75 @@ public class ProductionConfigurationTests {
     @Autowired
     private VetRepository vets;
 
+    @Autowired
+    private OwnerRepository owners;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private Map<String, HealthIndicator> healthIndicators;
+
+    @Autowired
+    private ApplicationContext context;
+
     @Test
     public void testFindAll() throws Exception {
         vets.findAll();
         vets.findAll(); // served from cache
     }
+
+    @Test
+    public void testVetsCacheIsWarmedOnStartup() throws Exception {
+        Cache cache = cacheManager.getCache("vets");
+        assertThat(cache.get(SimpleKey.EMPTY)).isNotNull();
+        assertThat(cache.get(MediaType.APPLICATION_JSON.toString())).isNotNull();
+        assertThat(cache.get(MediaType.APPLICATION_XML.toString())).isNotNull();
+        assertThat(healthIndicators.get("vetsCacheHealthIndicator").health().getStatus()).isEqualTo(Status.UP);
+    }
+
+    @Test
+    public void testDataExportIsNotServedUnlessEnabled() throws Exception {
+        assertThat(context.containsBean("dataExportController")).isFalse();
+    }
+
+    @Test
+    public void testCacheStatisticsArePublished() throws Exception {
+        vets.findAll();
+        assertThat(registry.find("cache.gets").tags("cache", "vets", "result", "hit").functionCounter()).isNotNull();
+        assertThat(registry.find("cache.evictions").tags("cache", "vets").functionCounter()).isNotNull();
+    }
+
+    @Test
+    public void testRepositoryInvocationsAreTimed() throws Exception {
+        vets.findAll();
+        Timer timer = registry.find(RepositoryMetricsAspect.METRIC_NAME)
+            .tags("repository", "VetRepository", "method", "findAll", "exception", "None").timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isGreaterThan(0);
+        assertThat(timer.takeSnapshot(false).percentileValues()).hasSize(3);
+    }
+
+    @Test
+    public void testHibernateStatisticsArePublished() throws Exception {
+        owners.findById(1);
+        assertThat(registry.find("hibernate.entities.loads").functionCounter().count()).isGreaterThan(0);
+        assertThat(registry.find("hibernate.query.executions").functionCounter()).isNotNull();
+        assertThat(registry.find("hibernate.collections.fetches").functionCounter()).isNotNull();
+        assertThat(registry.find("hibernate.flushes").functionCounter()).isNotNull();
+    }
+
+    @Test
+    public void testConnectionPoolMetricsArePublished() throws Exception {
+        assertThat(registry.find("hikaricp.connections.active").gauge()).isNotNull();
+        assertThat(registry.find("hikaricp.connections.acquire").timer()).isNotNull();
+    }
+
+    @Test
+    public void testMetricsAreTaggedWithTheApplication() throws Exception {
+        assertThat(registry.find("hikaricp.connections.active").tags("application", "petclinic").gauge()).isNotNull();
+    }
 }
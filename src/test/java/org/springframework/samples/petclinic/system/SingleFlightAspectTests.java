@@ -0,0 +1,210 @@
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.data.repository.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class SingleFlightAspectTests {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final BlockingRepository target = new BlockingRepository();
+
+    private SingleFlightAspect aspect;
+
+    private Things things;
+
+    @Before
+    public void setup() {
+        setup(Duration.ofSeconds(5));
+    }
+
+    @After
+    public void shutdown() {
+        this.target.release.countDown();
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentIdenticalCallsShareOneLoad() throws Exception {
+        Future<List<String>> leader = this.executor.submit(() -> this.things.findByName("a"));
+        this.target.started.await(5, TimeUnit.SECONDS);
+        Future<List<String>> follower = this.executor.submit(() -> this.things.findByName("a"));
+        awaitCoalesced(follower);
+        this.target.release.countDown();
+
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isSameAs(leader.get(5, TimeUnit.SECONDS));
+        assertThat(this.target.loads.get()).isEqualTo(1);
+        assertThat(coalesced()).isEqualTo(1);
+        assertThat(this.aspect.getFlights()).isZero();
+    }
+
+    @Test
+    public void testDifferentArgumentsAreLoadedSeparately() throws Exception {
+        this.target.release.countDown();
+        this.things.findByName("a");
+        this.things.findByName("b");
+        this.things.findByName("a");
+
+        assertThat(this.target.loads.get()).isEqualTo(3);
+        assertThat(coalesced()).isZero();
+    }
+
+    @Test
+    public void testLeaderFailureIsRethrownToFollowers() throws Exception {
+        this.target.failure = new DataRetrievalFailureException("down");
+        this.executor.submit(() -> this.things.findByName("a"));
+        this.target.started.await(5, TimeUnit.SECONDS);
+        Future<List<String>> follower = this.executor.submit(() -> this.things.findByName("a"));
+        awaitCoalesced(follower);
+        this.target.release.countDown();
+
+        Throwable thrown = catchThrowable(() -> follower.get(5, TimeUnit.SECONDS));
+        assertThat(thrown).hasCauseInstanceOf(DataRetrievalFailureException.class);
+        assertThat(this.target.loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testFollowerLoadsItselfAfterTimeout() throws Exception {
+        setup(Duration.ofMillis(50));
+        this.executor.submit(() -> this.things.findByName("a"));
+        this.target.started.await(5, TimeUnit.SECONDS);
+        Future<List<String>> follower = this.executor.submit(() -> this.things.findByName("a"));
+
+        // the follower's own load blocks on the same latch, so it has given up on the leader once it starts
+        waitFor(() -> this.target.loads.get() == 2);
+        this.target.release.countDown();
+        follower.get(5, TimeUnit.SECONDS);
+        assertThat(this.registry.get(SingleFlightAspect.TIMEOUTS_METRIC_NAME).counter().count()).isEqualTo(1);
+        assertThat(this.aspect.getFlights()).isZero();
+    }
+
+    @Test
+    public void testCallsInsideATransactionAreNotCoalesced() throws Exception {
+        this.target.release.countDown();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            this.things.findByName("a");
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+        assertThat(this.aspect.getFlights()).isZero();
+        assertThat(this.target.loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testMutableArgumentsAndUnannotatedMethodsAreNotCoalesced() throws Exception {
+        Future<List<String>> first = this.executor.submit(() -> this.things.findByNames(Collections.singletonList("a")));
+        Future<List<String>> second = this.executor.submit(() -> this.things.findAll());
+        waitFor(() -> this.target.loads.get() == 2);
+        assertThat(this.aspect.getFlights()).isZero();
+        this.target.release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+    }
+
+    private void setup(Duration timeout) {
+        this.aspect = new SingleFlightAspect(timeout, this.registry);
+        AspectJProxyFactory factory = new AspectJProxyFactory(this.target);
+        factory.addInterface(Things.class);
+        factory.addAspect(this.aspect);
+        this.things = factory.getProxy();
+    }
+
+    private double coalesced() {
+        Counter counter = this.registry.find(SingleFlightAspect.METRIC_NAME)
+            .tags("repository", "Things", "method", "findByName").counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private void awaitCoalesced(Future<?> follower) throws InterruptedException {
+        // the follower is parked on the leader's future; give it time to get there
+        Thread.sleep(100);
+        assertThat(follower.isDone()).isFalse();
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    interface Things extends Repository<String, Integer> {
+
+        @SingleFlight
+        List<String> findByName(String name);
+
+        @SingleFlight
+        List<String> findByNames(List<String> names);
+
+        List<String> findAll();
+
+    }
+
+    static class BlockingRepository implements Things {
+
+        final AtomicInteger loads = new AtomicInteger();
+
+        final CountDownLatch started = new CountDownLatch(1);
+
+        final CountDownLatch release = new CountDownLatch(1);
+
+        volatile RuntimeException failure;
+
+        @Override
+        public List<String> findByName(String name) {
+            return load(name);
+        }
+
+        @Override
+        public List<String> findByNames(List<String> names) {
+            return load(names.toString());
+        }
+
+        @Override
+        public List<String> findAll() {
+            return load("all");
+        }
+
+        private List<String> load(String name) {
+            this.loads.incrementAndGet();
+            this.started.countDown();
+            try {
+                this.release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (this.failure != null) {
+                throw this.failure;
+            }
+            return Collections.singletonList(name);
+        }
+
+    }
+
+}
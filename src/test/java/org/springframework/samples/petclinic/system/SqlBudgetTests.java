@@ -0,0 +1,264 @@
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.samples.petclinic.system.SqlStatisticsMatchers.noRepeatedSql;
+import static org.springframework.samples.petclinic.system.SqlStatisticsMatchers.sqlRowsAtMost;
+import static org.springframework.samples.petclinic.system.SqlStatisticsMatchers.sqlStatements;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.PetTypeRegistry;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Pins the SQL issued by the owner, pet, visit and vet pages against the sample data. The
+ * controller tests run on mocked repositories, so the budgets are checked here, with the
+ * production profile (and so the vets cache) switched off. Pet types are loaded up front, as they
+ * are on any running instance, and outside any test transaction so that they never sit in a
+ * write's persistence context. Reads run outside a test transaction, as they do in production, so
+ * any lazy association a page touches while rendering shows up in its count. Writes run in one
+ * that is rolled back, so their inserts and updates, flushed on commit, are not counted; ids are
+ * drawn from a fresh pool, as only one test inserts each kind of entity.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.profiles.active=test")
+@AutoConfigureMockMvc
+public class SqlBudgetTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private OwnerRepository owners;
+
+    @Autowired
+    private PetTypeRegistry petTypes;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Before
+    public void setup() {
+        TransactionTemplate outside = new TransactionTemplate(transactionManager);
+        outside.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+        outside.execute(status -> petTypes.findAll());
+    }
+
+    @Test
+    public void testOwnerDetails() throws Exception {
+        mockMvc.perform(get("/owners/1"))
+            .andExpect(status().isOk())
+            .andExpect(sqlStatements(2))
+            .andExpect(noRepeatedSql());
+    }
+
+    @Test
+    public void testOwnerDetailsJoinsPetsAndVisits() throws Exception {
+        mockMvc.perform(get("/owners/6"))
+            .andExpect(status().isOk())
+            .andExpect(sqlStatements(2))
+            .andExpect(noRepeatedSql());
+    }
+
+    @Test
+    public void testFindOwners() throws Exception {
+        mockMvc.perform(get("/owners").param("lastName", ""))
+            .andExpect(status().isOk())
+            .andExpect(sqlStatements(1))
+            .andExpect(sqlRowsAtMost(10));
+    }
+
+    @Test
+    public void testOwnerSuggestionsComeFromTheIndex() throws Exception {
+        mockMvc.perform(get("/owners/suggestions").param("prefix", "Da"))
+            .andExpect(status().isOk())
+            .andExpect(sqlStatements(0));
+    }
+
+    /**
+     * Only the id: a new owner starts at version 0, so there is nothing to bump.
+     */
+    @Test
+    @Transactional
+    public void testCreateOwner() throws Exception {
+        mockMvc.perform(post("/owners/new")
+            .param("firstName", "Joe")
+            .param("lastName", "Bloggs")
+            .param("address", "123 Caramel Street")
+            .param("city", "London")
+            .param("telephone", "0131676163"))
+            .andExpect(status().is3xxRedirection())
+            .andExpect(sqlStatements(1))
+            .andExpect(noRepeatedSql());
+    }
+
+    @Test
+    public void testEditOwner() throws Exception {
+        mockMvc.perform(get("/owners/1/edit"))
+            .andExpect(status().isOk())
+            .andExpect(sqlStatements(1))
+            .andExpect(noRepeatedSql());
+    }
+
+    /**
+     * The merge loads the owner with its pets, as they are cascaded, and then their pet type; then
+     * the version bump.
+     */
+    @Test
+    @Transactional
+    public void testUpdateOwner() throws Exception {
+        mockMvc.perform(post("/owners/1/edit")
+            .param("firstName", "George")
+            .param("lastName", "Franklin")
+            .param("address", "110 W. Liberty St.")
+            .param("city", "Madison")
+            .param("telephone", "6085551023"))
+            .andExpect(status().is3xxRedirection())
+            .andExpect(sqlStatements(3))
+            .andExpect(noRepeatedSql());
+    }
+
+    @Test
+    public void testNewPet() throws Exception {
+        mockMvc.perform(get("/owners/1/pets/new"))
+            .andExpect(status().isOk())
+            .andExpect(sqlStatements(1))
+            .andExpect(noRepeatedSql());
+    }
+
+    @Test
+    public void testEditPet() throws Exception {
+        mockMvc.perform(get("/owners/6/pets/7/edit"))
+            .andExpect(status().isOk())
+            .andExpect(sqlStatements(2))
+            .andExpect(noRepeatedSql());
+    }
+
+    /**
+     * The owner with its pets, the id and the owner's version bump.
+     */
+    @Test
+    @Transactional
+    public void testCreatePet() throws Exception {
+        mockMvc.perform(post("/owners/6/pets/new")
+            .param("name", "Betty")
+            .param("type", "hamster")
+            .param("birthDate", "2015-02-12"))
+            .andExpect(status().is3xxRedirection())
+            .andExpect(sqlStatements(3))
+            .andExpect(noRepeatedSql());
+    }
+
+    /**
+     * The owner with its pets, which the merge then finds in the persistence context, and the
+     * owner's version bump.
+     */
+    @Test
+    @Transactional
+    public void testUpdatePet() throws Exception {
+        mockMvc.perform(post("/owners/6/pets/7/edit")
+            .param("id", "7")
+            .param("name", "Samantha")
+            .param("type", "cat")
+            .param("birthDate", "2012-09-04"))
+            .andExpect(status().is3xxRedirection())
+            .andExpect(sqlStatements(2))
+            .andExpect(noRepeatedSql());
+    }
+
+    @Test
+    public void testNewVisit() throws Exception {
+        mockMvc.perform(get("/owners/6/pets/7/visits/new"))
+            .andExpect(status().isOk())
+            .andExpect(sqlStatements(2))
+            .andExpect(noRepeatedSql());
+    }
+
+    /**
+     * The pet existence check, the id and the owner's version bump; the insert itself is only
+     * flushed on commit, which the test transaction rolls back.
+     */
+    @Test
+    @Transactional
+    public void testAddVisitDoesNotLoadThePet() throws Exception {
+        mockMvc.perform(post("/owners/6/pets/7/visits/new")
+            .param("date", "2018-03-01")
+            .param("description", "booster"))
+            .andExpect(status().is3xxRedirection())
+            .andExpect(sqlStatements(3))
+            .andExpect(sqlRowsAtMost(2))
+            .andExpect(noRepeatedSql());
+    }
+
+    @Test
+    public void testVetsJoinSpecialties() throws Exception {
+        mockMvc.perform(get("/vets.html"))
+            .andExpect(status().isOk())
+            .andExpect(sqlStatements(1));
+    }
+
+    @Test
+    public void testVetsJson() throws Exception {
+        mockMvc.perform(get("/vets.json"))
+            .andExpect(status().isOk())
+            .andExpect(sqlStatements(1))
+            .andExpect(noRepeatedSql());
+    }
+
+    @Test
+    public void testVetsXml() throws Exception {
+        mockMvc.perform(get("/vets.xml"))
+            .andExpect(status().isOk())
+            .andExpect(sqlStatements(1))
+            .andExpect(noRepeatedSql());
+    }
+
+    @Test
+    public void testCountsAreSentAsHeadersOutsideProduction() throws Exception {
+        mockMvc.perform(get("/owners/1"))
+            .andExpect(header().string("X-SQL-Statements", "2"))
+            .andExpect(header().string("X-SQL-Rows", "2"))
+            .andExpect(header().exists("X-SQL-Time"));
+    }
+
+    @Test
+    @Transactional
+    public void testCountsAreSentAsHeadersAheadOfARedirect() throws Exception {
+        mockMvc.perform(post("/owners/1/edit")
+            .param("firstName", "George")
+            .param("lastName", "Franklin")
+            .param("address", "110 W. Liberty St.")
+            .param("city", "Madison")
+            .param("telephone", "6085551023"))
+            .andExpect(status().is3xxRedirection())
+            .andExpect(header().string("X-SQL-Statements", "3"));
+    }
+
+    @Test
+    public void testCodeBlockCanBeMeasured() throws Exception {
+        SqlStatistics sql = SqlStatistics.start();
+        try {
+            owners.findById(1);
+        } finally {
+            sql.stop();
+        }
+        assertThat(sql.getStatements()).isGreaterThan(0);
+        assertThat(sql.getRows()).isGreaterThan(0);
+        assertThat(SqlStatistics.current()).isNull();
+    }
+
+}
@@ -0,0 +1,67 @@
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class SqlStatisticsFilterTests {
+
+    private final SqlStatisticsFilter filter = new SqlStatisticsFilter(new SqlBudgetProperties(), true,
+        new SimpleMeterRegistry());
+
+    @Test
+    public void testLargeBodyIsStreamedWithTheHeaders() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        byte[] chunk = new byte[response.getBufferSize()];
+        Arrays.fill(chunk, (byte) 'x');
+        boolean[] committed = new boolean[1];
+
+        this.filter.doFilter(new MockHttpServletRequest("GET", "/export/owners"), response,
+            new MockFilterChain(new HttpServlet() {
+                @Override
+                protected void service(HttpServletRequest request, HttpServletResponse servletResponse)
+                    throws IOException {
+                    ServletOutputStream out = servletResponse.getOutputStream();
+                    out.write(chunk);
+                    out.write(chunk);
+                    committed[0] = response.isCommitted() && response.getContentAsByteArray().length > 0;
+                    out.write(chunk);
+                }
+            }));
+
+        assertThat(committed[0]).isTrue();
+        assertThat(response.getHeader("X-SQL-Statements")).isEqualTo("0");
+        assertThat(response.getContentAsByteArray()).hasSize(3 * chunk.length);
+    }
+
+    @Test
+    public void testSmallBodyIsWrittenAfterTheHeaders() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setCharacterEncoding("UTF-8");
+
+        this.filter.doFilter(new MockHttpServletRequest("GET", "/owners/1"), response,
+            new MockFilterChain(new HttpServlet() {
+                @Override
+                protected void service(HttpServletRequest request, HttpServletResponse servletResponse)
+                    throws IOException {
+                    servletResponse.getWriter().write("George Franklin, Zoë");
+                }
+            }));
+
+        assertThat(response.getHeader("X-SQL-Rows")).isEqualTo("0");
+        assertThat(response.getContentAsString()).isEqualTo("George Franklin, Zoë");
+    }
+
+}
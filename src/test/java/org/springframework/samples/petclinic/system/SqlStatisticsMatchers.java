@@ -0,0 +1,41 @@
+package org.springframework.samples.petclinic.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+/**
+ * {@link ResultMatcher}s pinning the SQL a MockMvc request may issue, as measured by
+ * {@link SqlStatisticsFilter}. A change that adds statements to a page, typically an N+1 select
+ * over a lazy or eager association, then fails the test that covers it.
+ */
+public abstract class SqlStatisticsMatchers {
+
+    public static ResultMatcher sqlStatements(int expected) {
+        return result -> assertThat(statistics(result).getStatements())
+            .as("SQL statements (%s)", statistics(result)).isEqualTo(expected);
+    }
+
+    public static ResultMatcher sqlStatementsAtMost(int max) {
+        return result -> assertThat(statistics(result).getStatements())
+            .as("SQL statements (%s)", statistics(result)).isLessThanOrEqualTo(max);
+    }
+
+    public static ResultMatcher sqlRowsAtMost(long max) {
+        return result -> assertThat(statistics(result).getRows())
+            .as("SQL rows (%s)", statistics(result)).isLessThanOrEqualTo(max);
+    }
+
+    public static ResultMatcher noRepeatedSql() {
+        return result -> assertThat(statistics(result).getMaxRepeats())
+            .as("executions of %s", statistics(result).getMostRepeatedStatement()).isLessThanOrEqualTo(1);
+    }
+
+    private static SqlStatistics statistics(MvcResult result) {
+        SqlStatistics statistics = (SqlStatistics) result.getRequest().getAttribute(SqlStatistics.REQUEST_ATTRIBUTE);
+        assertThat(statistics).as("SQL statistics of the request").isNotNull();
+        return statistics;
+    }
+
+}
@@ -40,4 +40,21 @@ public class VetTests {
         assertThat(other.getId()).isEqualTo(vet.getId());
     }
 
+    @Test
+    public void testSpecialtiesStaySortedAfterAdd() {
+        Vet vet = new Vet();
+        vet.addSpecialty(specialty("surgery"));
+        assertThat(vet.getSpecialties()).extracting(Specialty::getName).containsExactly("surgery");
+        assertThat(vet.getSpecialties()).isSameAs(vet.getSpecialties());
+
+        vet.addSpecialty(specialty("dentistry"));
+        assertThat(vet.getSpecialties()).extracting(Specialty::getName).containsExactly("dentistry", "surgery");
+    }
+
+    private Specialty specialty(String name) {
+        Specialty specialty = new Specialty();
+        specialty.setName(name);
+        return specialty;
+    }
+
 }
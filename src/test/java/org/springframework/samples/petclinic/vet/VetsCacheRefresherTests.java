@@ -0,0 +1,113 @@
+package org.springframework.samples.petclinic.vet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.system.CacheProperties;
+
+public class VetsCacheRefresherTests {
+
+    private final VetRepository vets = mock(VetRepository.class);
+
+    private final VetsSerializer serializer = mock(VetsSerializer.class);
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private VetsCacheRefresher refresher;
+
+    @After
+    public void stop() {
+        if (this.refresher != null) {
+            this.refresher.stop();
+        }
+    }
+
+    @Test
+    public void testCacheIsLoadedOnStart() {
+        this.refresher = refresher(null, Duration.ofMinutes(10));
+        assertThat(this.refresher.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+        this.refresher.start();
+
+        verify(this.vets).reloadAll();
+        verify(this.serializer).reserialize(MediaType.APPLICATION_JSON);
+        verify(this.serializer).reserialize(MediaType.APPLICATION_XML);
+        assertThat(this.refresher.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(this.registry.get("petclinic.cache.refresh").tags("cache", "vets", "exception", "None").timer().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    public void testCacheIsReloadedAheadOfExpiry() {
+        this.refresher = refresher(Duration.ofMillis(20), Duration.ofMinutes(10));
+        this.refresher.start();
+
+        verify(this.vets, timeout(2000).atLeast(3)).reloadAll();
+        assertThat(this.refresher.health().getStatus()).isEqualTo(Status.UP);
+    }
+
+    @Test
+    public void testFailedLoadIsRetriedAndReported() {
+        given(this.vets.reloadAll()).willThrow(new DataAccessResourceFailureException("down"));
+        this.refresher = refresher(Duration.ofMillis(20), Duration.ofMinutes(10));
+        this.refresher.start();
+
+        verify(this.vets, timeout(2000).atLeast(2)).reloadAll();
+        assertThat(this.refresher.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        assertThat(this.registry.get("petclinic.cache.refresh")
+            .tags("exception", "DataAccessResourceFailureException").timer().count()).isGreaterThan(0);
+    }
+
+    @Test
+    public void testStopEndsTheReloads() throws Exception {
+        this.refresher = refresher(Duration.ofMillis(20), Duration.ofMinutes(10));
+        this.refresher.start();
+        verify(this.vets, timeout(2000).atLeast(2)).reloadAll();
+        this.refresher.stop();
+        int reloads = mockingDetails(this.vets).getInvocations().size();
+
+        Thread.sleep(100);
+        assertThat(mockingDetails(this.vets).getInvocations()).hasSize(reloads);
+    }
+
+    @Test
+    public void testRefreshMustComeBeforeExpiry() {
+        assertThatThrownBy(() -> refresher(Duration.ofMinutes(10), Duration.ofMinutes(10)))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("refresh-after");
+    }
+
+    @Test
+    public void testTimeToIdleIsNotTakenForATimeToLive() throws Exception {
+        CacheProperties.Spec spec = new CacheProperties.Spec();
+        spec.setRefreshAfter(Duration.ofMinutes(10));
+        spec.setTimeToIdle(Duration.ofMillis(1));
+        this.refresher = new VetsCacheRefresher(this.vets, this.serializer, spec, this.registry);
+        this.refresher.start();
+
+        Thread.sleep(20);
+        assertThat(this.refresher.health().getStatus()).isEqualTo(Status.UP);
+    }
+
+    private VetsCacheRefresher refresher(Duration refreshAfter, Duration timeToLive) {
+        CacheProperties.Spec spec = new CacheProperties.Spec();
+        spec.setRefreshAfter(refreshAfter);
+        spec.setTimeToLive(timeToLive);
+        return new VetsCacheRefresher(this.vets, this.serializer, spec, this.registry);
+    }
+
+}
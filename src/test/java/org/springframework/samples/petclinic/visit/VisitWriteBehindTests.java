@@ -0,0 +1,272 @@
+package org.springframework.samples.petclinic.visit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Test class for {@link VisitWriteBehind}
+ */
+public class VisitWriteBehindTests {
+
+    private VisitRepository visits;
+
+    private WriteBehindProperties properties;
+
+    private MeterRegistry registry;
+
+    private VisitWriteBehind writer;
+
+    @Captor
+    private ArgumentCaptor<Iterable<Visit>> batches;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        this.visits = mock(VisitRepository.class);
+        this.properties = new WriteBehindProperties();
+        this.properties.setAck(WriteBehindProperties.Ack.ENQUEUE);
+        this.properties.setMaxDelay(Duration.ofMillis(500));
+        this.registry = new SimpleMeterRegistry();
+    }
+
+    @After
+    public void stop() {
+        if (this.writer != null) {
+            this.writer.stop();
+        }
+    }
+
+    @Test
+    public void shouldWriteVisitsArrivingTogetherInOneCommit() {
+        start();
+        for (int i = 0; i < 5; i++) {
+            this.writer.record(visit(i));
+        }
+        this.writer.stop();
+
+        verify(this.visits, times(1)).saveAll(any());
+        assertThat(this.registry.get("petclinic.visits.writebehind.batch.size").summary().max()).isEqualTo(5);
+        assertThat(this.registry.get("petclinic.visits.writebehind.latency").timer().count()).isEqualTo(5);
+    }
+
+    @Test
+    public void shouldNotExceedTheBatchSize() {
+        this.properties.setBatchSize(2);
+        start();
+        for (int i = 0; i < 5; i++) {
+            this.writer.record(visit(i));
+        }
+        this.writer.stop();
+
+        verify(this.visits, times(3)).saveAll(this.batches.capture());
+        List<Integer> petIds = new ArrayList<>();
+        this.batches.getAllValues().forEach(batch -> batch.forEach(visit -> petIds.add(visit.getPetId())));
+        assertThat(petIds).containsExactly(0, 1, 2, 3, 4);
+    }
+
+    @Test
+    public void shouldWaitForTheCommitAndReportItsFailure() {
+        this.properties.setAck(WriteBehindProperties.Ack.COMMIT);
+        this.properties.setMaxDelay(Duration.ZERO);
+        given(this.visits.saveAll(any())).willThrow(new DataIntegrityViolationException("group"));
+        willThrow(new DataIntegrityViolationException("single")).given(this.visits).save(any());
+        start();
+
+        assertThatThrownBy(() -> this.writer.record(visit(1))).hasMessage("single");
+        assertThat(this.registry.get("petclinic.visits.writebehind.failures").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRetryOneByOneWhenTheGroupCommitFails() {
+        this.properties.setAck(WriteBehindProperties.Ack.COMMIT);
+        this.properties.setMaxDelay(Duration.ZERO);
+        given(this.visits.saveAll(any())).willThrow(new DataIntegrityViolationException("group"));
+        start();
+
+        this.writer.record(visit(1));
+
+        verify(this.visits).save(any(Visit.class));
+    }
+
+    @Test
+    public void shouldTurnVisitsAwayWhenTheQueueStaysFull() throws Exception {
+        this.properties.setQueueCapacity(1);
+        this.properties.setMaxDelay(Duration.ZERO);
+        this.properties.setEnqueueTimeout(Duration.ofMillis(10));
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        given(this.visits.saveAll(any())).willAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return null;
+        });
+        start();
+
+        this.writer.record(visit(1));
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        this.writer.record(visit(2));
+        assertThatThrownBy(() -> this.writer.record(visit(3))).isInstanceOf(VisitQueueFullException.class);
+        release.countDown();
+    }
+
+    @Test
+    public void shouldGiveUpWaitingForACommitAfterTheAckTimeout() {
+        this.properties.setAck(WriteBehindProperties.Ack.COMMIT);
+        this.properties.setMaxDelay(Duration.ZERO);
+        this.properties.setAckTimeout(Duration.ofMillis(50));
+        CountDownLatch release = new CountDownLatch(1);
+        given(this.visits.saveAll(any())).willAnswer(invocation -> {
+            release.await();
+            return null;
+        });
+        start();
+
+        assertThatThrownBy(() -> this.writer.record(visit(1))).isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("not committed");
+        release.countDown();
+    }
+
+    @Test
+    public void shouldSaveInTheRequestOnceStopped() {
+        this.properties.setAck(WriteBehindProperties.Ack.COMMIT);
+        start();
+        this.writer.stop();
+
+        this.writer.record(visit(1));
+
+        verify(this.visits).save(any(Visit.class));
+        verify(this.visits, never()).saveAll(any());
+    }
+
+    @Test
+    public void shouldStopWithinTheShutdownTimeoutWhenTheWriterIsStuck() throws Exception {
+        this.properties.setMaxDelay(Duration.ZERO);
+        this.properties.setShutdownTimeout(Duration.ofMillis(50));
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        given(this.visits.saveAll(any())).willAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return null;
+        });
+        start();
+        this.writer.record(visit(1));
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        this.writer.record(visit(2));
+
+        long start = System.nanoTime();
+        this.writer.stop();
+
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(5));
+        assertThat(this.writer.isRunning()).isFalse();
+        release.countDown();
+    }
+
+    @Test
+    public void shouldFailOnlyTheBatchHitByAnError() {
+        this.properties.setAck(WriteBehindProperties.Ack.COMMIT);
+        this.properties.setMaxDelay(Duration.ZERO);
+        given(this.visits.saveAll(any())).willThrow(new OutOfMemoryError("group")).willReturn(null);
+        start();
+
+        assertThatThrownBy(() -> this.writer.record(visit(1))).hasCauseInstanceOf(OutOfMemoryError.class);
+        this.writer.record(visit(2));
+
+        verify(this.visits, times(2)).saveAll(any());
+        assertThat(this.writer.isRunning()).isTrue();
+        assertThat(this.registry.get("petclinic.visits.writebehind.failures").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldSaveInTheRequestOnceTheWriterDied() throws Exception {
+        this.properties.setAck(WriteBehindProperties.Ack.COMMIT);
+        start();
+        Thread.getAllStackTraces().keySet().stream()
+            .filter(thread -> thread.getName().equals("visit-writer"))
+            .forEach(Thread::interrupt);
+        for (int i = 0; i < 100 && this.writer.isRunning(); i++) {
+            Thread.sleep(10);
+        }
+
+        this.writer.record(visit(1));
+
+        verify(this.visits).save(any(Visit.class));
+        verify(this.visits, never()).saveAll(any());
+    }
+
+    @Test
+    public void shouldWriteEveryVisitRecordedWhileStopping() throws Exception {
+        AtomicInteger written = new AtomicInteger();
+        given(this.visits.saveAll(any())).willAnswer(invocation -> {
+            Iterable<?> batch = invocation.getArgument(0);
+            batch.forEach(visit -> written.incrementAndGet());
+            return null;
+        });
+        willAnswer(invocation -> {
+            written.incrementAndGet();
+            return null;
+        }).given(this.visits).save(any());
+        this.properties.setMaxDelay(Duration.ZERO);
+        start();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> recorders = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            recorders.add(executor.submit(() -> {
+                for (int j = 0; j < 500; j++) {
+                    this.writer.record(visit(j));
+                }
+            }));
+        }
+        Thread.sleep(5);
+        this.writer.stop();
+        for (Future<?> recorder : recorders) {
+            recorder.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(written.get()).isEqualTo(2000);
+    }
+
+    private void start() {
+        this.writer = new VisitWriteBehind(this.visits, mock(PlatformTransactionManager.class), this.properties,
+            this.registry);
+        this.writer.start();
+    }
+
+    private Visit visit(int petId) {
+        Visit visit = new Visit();
+        visit.setPetId(petId);
+        visit.setDescription("check up");
+        return visit;
+    }
+
+}